@@ -3,40 +3,46 @@ package com.strapdata.cassandra.k8s;
 import org.apache.cassandra.config.DatabaseDescriptor;
 import org.apache.cassandra.exceptions.ConfigurationException;
 import org.apache.cassandra.gms.*;
-import org.apache.cassandra.io.util.FileUtils;
 import org.apache.cassandra.utils.FBUtilities;
-import org.jctools.queues.MpscArrayQueue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.DataInputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.net.HttpURLConnection;
 import java.net.InetAddress;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 /**
  * Catch gossip events and push it asynchronously to the Elassandra operator.
+ *
+ * The latest status of each endpoint of the local datacenter is coalesced over a short window, then posted in a single
+ * batch by a consumer thread parked while there is nothing to send. A failed batch is retried a bounded number of times,
+ * statuses changed in the meantime superseding the ones of the failed batch.
  */
 public class ElassandraOperatorSeedProviderAndNotifier extends ElassandraOperatorSeedProvider implements IEndpointStateChangeSubscriber {
 
     private static final Logger logger = LoggerFactory.getLogger(ElassandraOperatorSeedProviderAndNotifier.class);
 
     public static final String STATUS_NOTIFIER_URL = "cassandra.status_notifier_url";
-    public static int MAX_QUEUE_SIZE = 64;
+    public static final String STATUS_NOTIFIER_WINDOW_MS = "cassandra.status_notifier_window_ms";
+    public static final String STATUS_NOTIFIER_MAX_RETRIES = "cassandra.status_notifier_max_retries";
 
-    String urlFormat;
+    String batchUrl;
     String localDc;
+    long windowMs;
+    int maxRetries;
     final ConcurrentMap<InetAddress, String> endpointStatus;
-    final MpscArrayQueue<InetAddress> queue;
-    final ExecutorService executorService;
+    // statuses not sent yet, guarded by itself
+    final Map<InetAddress, String> pending;
+    final Thread consumer;
 
     public ElassandraOperatorSeedProviderAndNotifier(final Map<String, String> args) {
         super(args);
@@ -46,18 +52,19 @@ public class ElassandraOperatorSeedProviderAndNotifier extends ElassandraOperato
         String baseUrl = System.getProperty(STATUS_NOTIFIER_URL);
         if (baseUrl == null) {
             this.endpointStatus = null;
-            this.queue = null;
-            this.executorService = null;
+            this.pending = null;
+            this.consumer = null;
         } else {
-            if (!baseUrl.endsWith("/"))
-                baseUrl += "/";
-            this.urlFormat = baseUrl + "%s/%s";
-            logger.info("Status notifier url format={}", urlFormat);
+            this.batchUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+            this.windowMs = Long.getLong(STATUS_NOTIFIER_WINDOW_MS, 500L);
+            this.maxRetries = Integer.getInteger(STATUS_NOTIFIER_MAX_RETRIES, 3);
+            logger.info("Status notifier url={} windowMs={} maxRetries={}", batchUrl, windowMs, maxRetries);
 
             this.endpointStatus = new ConcurrentHashMap<>();
-            this.queue = new MpscArrayQueue<>(MAX_QUEUE_SIZE);
-            this.executorService = Executors.newFixedThreadPool(1);
-            this.executorService.submit(new Consumer());
+            this.pending = new LinkedHashMap<>();
+            this.consumer = new Thread(new Consumer(), "elassandra-operator-notifier");
+            this.consumer.setDaemon(true);
+            this.consumer.start();
 
             register();
         }
@@ -142,65 +149,129 @@ public class ElassandraOperatorSeedProviderAndNotifier extends ElassandraOperato
         if (this.localDc.equals(DatabaseDescriptor.getEndpointSnitch().getDatacenter(endpoint))) {
             String prevStatus = endpointStatus.put(endpoint, status);
             if (!Objects.equals(status, prevStatus)) {
-                queue.offerIfBelowThreshold(endpoint, MAX_QUEUE_SIZE);
+                synchronized (pending) {
+                    pending.put(endpoint, status);
+                    pending.notify();
+                }
             }
         }
     }
 
+    /**
+     * @return the operator node status of a gossip STATUS value (e.g. NORMAL,token or shutdown,true)
+     */
+    static String nodeStatus(String gossipStatus) {
+        int i = gossipStatus.indexOf(',');
+        String status = ((i < 0) ? gossipStatus : gossipStatus.substring(0, i)).toUpperCase(Locale.ROOT);
+        switch (status) {
+            case "SHUTDOWN":
+                return "DOWN";
+            case "BOOT":
+            case "BOOT_REPLACE":
+                return "JOINING";
+            case "REMOVING":
+            case "REMOVED":
+                return "LEAVING";
+            case "LEFT":
+                return "DECOMMISSIONED";
+            case "NORMAL":
+            case "LEAVING":
+            case "MOVING":
+                return status;
+            default:
+                // unknown by the operator, which would reject the whole batch
+                return "UNKNOWN";
+        }
+    }
+
 
     class Consumer implements Runnable {
 
-        /**
-         * When an object implementing interface <code>Runnable</code> is used
-         * to create a thread, starting the thread causes the object's
-         * <code>run</code> method to be called in that separately executing
-         * thread.
-         * <p>
-         * The general contract of the method <code>run</code> is that it may
-         * take any action whatsoever.
-         *
-         * @see Thread#run()
-         */
         @Override
         public void run() {
             while(true) {
                 try {
-                    InetAddress inetAddress = queue.poll();
-                    sendStatus(inetAddress, endpointStatus.get(inetAddress));
-                } catch (IOException | ConfigurationException e) {
+                    Map<InetAddress, String> batch = nextBatch();
+                    for (int attempt = 0; !batch.isEmpty(); attempt++) {
+                        try {
+                            sendStatus(batch);
+                            break;
+                        } catch (IOException | ConfigurationException e) {
+                            if (attempt >= maxRetries) {
+                                logger.warn("Failed to notify status of endpoints={}, giving up after {} attempts", batch.keySet(), attempt + 1, e);
+                                break;
+                            }
+                            long delayMs = Math.min(30000L, windowMs << Math.min(attempt, 16));
+                            logger.info("Failed to notify status of endpoints={}, retrying in {}ms: {}", batch.keySet(), delayMs, e.toString());
+                            Thread.sleep(delayMs);
+                            // statuses published during the delay supersede the failed ones
+                            batch = merge(batch);
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    logger.info("Status notifier interrupted");
+                    return;
+                } catch (RuntimeException e) {
                     logger.warn("Failed to notify status", e);
                 }
             }
         }
 
-        void sendStatus(InetAddress endpoint, String status) throws IOException, ConfigurationException
+        /**
+         * Park until a status is published, then wait for the coalescing window and take all the pending statuses.
+         */
+        Map<InetAddress, String> nextBatch() throws InterruptedException {
+            synchronized (pending) {
+                while (pending.isEmpty()) {
+                    pending.wait();
+                }
+            }
+            Thread.sleep(windowMs);
+            return merge(new LinkedHashMap<>());
+        }
+
+        /**
+         * @return the batch updated with the pending statuses, which are removed from the pending map
+         */
+        Map<InetAddress, String> merge(Map<InetAddress, String> batch) {
+            synchronized (pending) {
+                batch.putAll(pending);
+                pending.clear();
+            }
+            return batch;
+        }
+
+        void sendStatus(Map<InetAddress, String> batch) throws IOException, ConfigurationException
         {
-            URL url = null;
-            try {
-                url = new URL(String.format(Locale.ROOT, urlFormat, endpoint.getHostAddress(), status));
-            } catch(Exception e) {
-                logger.error("init failed:", e);
-                return;
+            StringBuilder json = new StringBuilder("{");
+            for (Map.Entry<InetAddress, String> entry : batch.entrySet()) {
+                if (json.length() > 1)
+                    json.append(',');
+                json.append('"').append(entry.getKey().getHostAddress()).append("\":\"").append(nodeStatus(entry.getValue())).append('"');
             }
+            json.append('}');
+            byte[] body = json.toString().getBytes(StandardCharsets.UTF_8);
 
-            // Populate the region and zone by introspection, fail if 404 on metadata
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            DataInputStream d = null;
+            HttpURLConnection conn = (HttpURLConnection) new URL(batchUrl).openConnection();
             try
             {
+                conn.setConnectTimeout(5000);
+                conn.setReadTimeout(10000);
                 conn.setRequestMethod("POST");
                 conn.setRequestProperty("Metadata-Flavor", "elassandra-operator-notifier");
+                conn.setRequestProperty("Content-Type", "application/json");
+                conn.setDoOutput(true);
+                try (OutputStream out = conn.getOutputStream()) {
+                    out.write(body);
+                }
                 if (conn.getResponseCode() != 200)
                     throw new ConfigurationException("ElassandraOperatorStatusNotifier was unable to execute the API call code="+conn.getResponseCode()+" reason="+conn.getResponseMessage());
-                logger.debug("Status sent for endpoint={} status={}", endpoint, status);
+                logger.debug("Status sent for endpoints={}", json);
             }
             finally
             {
-                FileUtils.close(d);
                 conn.disconnect();
             }
         }
     }
-
-
 }
@@ -228,6 +228,30 @@ public class DataCenterSpec {
     @Expose
     private DecommissionPolicy decommissionPolicy = DecommissionPolicy.DELETE_PVC;
 
+    /**
+     * Maximum number of racks updated at the same time during a rolling update, default is one rack at a time.
+     * The operator caps it to keep a quorum of replicas of every keyspace, including the system keyspaces, so that racks
+     * are updated one at a time as long as a keyspace has a replication factor below 5.
+     */
+    @SerializedName("maxUnavailableRacks")
+    @Expose
+    private Integer maxUnavailableRacks = 1;
+
+    /**
+     * Maximum number of nodes added at the same time in distinct racks when scaling up, default is one node at a time.
+     * Nodes of a wave bootstrap concurrently with cassandra.consistent.rangemovement=false.
+     */
+    @SerializedName("scaleUpWaveSize")
+    @Expose
+    private Integer scaleUpWaveSize = 1;
+
+    /**
+     * Pace of the rolling updates inside a rack.
+     */
+    @SerializedName("rollingUpdate")
+    @Expose
+    private RollingUpdatePolicy rollingUpdate = new RollingUpdatePolicy();
+
     /**
      * Enable cassandra/ldap authentication and authorization
      */
@@ -27,4 +27,18 @@ public class RackStatus {
     @Expose
     private Integer joinedReplicas = 0;
 
+    /**
+     * Number of nodes joining the rack while SCALING_UP.
+     */
+    @SerializedName("joiningReplicas")
+    @Expose
+    private Integer joiningReplicas = 0;
+
+    /**
+     * Config fingerprint the rack is rolling to, while UPDATING.
+     */
+    @SerializedName("configMapFingerPrint")
+    @Expose
+    private String configMapFingerPrint = null;
+
 }
@@ -0,0 +1,37 @@
+package com.strapdata.model.k8s.cassandra;
+
+import com.google.gson.annotations.Expose;
+import com.google.gson.annotations.SerializedName;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Control the pace of rolling updates inside a rack, the operator lowers the statefulset partition step by step.
+ */
+@Data
+@NoArgsConstructor
+public class RollingUpdatePolicy {
+
+    /**
+     * Number of pods released for update at each step.
+     */
+    @SerializedName("podsPerStep")
+    @Expose
+    private Integer podsPerStep = 1;
+
+    /**
+     * Maximum number of pending compactions on each node to start the next step, -1 to disable the check.
+     */
+    @SerializedName("maxPendingCompactions")
+    @Expose
+    private Integer maxPendingCompactions = 100;
+
+    /**
+     * Maximum number of live endpoints having pending hints on each node of the rack and of the racks not updating, to
+     * start the next step once the hints to the restarted pods are replayed, -1 to disable the check. Hints to down
+     * endpoints are not counted, so that a dead node does not stall rolling updates for the whole hint window.
+     */
+    @SerializedName("maxPendingHintsEndpoints")
+    @Expose
+    private Integer maxPendingHintsEndpoints = 0;
+}
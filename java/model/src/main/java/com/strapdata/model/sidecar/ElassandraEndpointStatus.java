@@ -0,0 +1,43 @@
+package com.strapdata.model.sidecar;
+
+import com.google.gson.annotations.Expose;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Status of a cassandra endpoint, as seen through the gossip state of a node.
+ */
+@Data
+@NoArgsConstructor
+public class ElassandraEndpointStatus {
+
+    /**
+     * Endpoint broadcast address.
+     */
+    @Expose
+    private String endpoint;
+
+    @Expose
+    private String hostId;
+
+    @Expose
+    private String datacenter;
+
+    @Expose
+    private String rack;
+
+    @Expose
+    private ElassandraNodeStatus status = ElassandraNodeStatus.UNKNOWN;
+
+    /**
+     * Human readable data load.
+     */
+    @Expose
+    private String load;
+
+    /**
+     * Token ownership, between 0 and 1.
+     */
+    @Expose
+    private Float ownership;
+}
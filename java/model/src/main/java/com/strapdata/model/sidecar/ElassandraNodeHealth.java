@@ -0,0 +1,29 @@
+package com.strapdata.model.sidecar;
+
+import com.google.gson.annotations.Expose;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Cassandra node status with the load indicators checked before restarting the next nodes.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ElassandraNodeHealth {
+    @Expose
+    private ElassandraNodeStatus status = ElassandraNodeStatus.UNKNOWN;
+
+    /**
+     * Number of pending compaction tasks.
+     */
+    @Expose
+    private Long pendingCompactions = 0L;
+
+    /**
+     * Number of live endpoints this node has hints for, hints to down endpoints are not replayed until they come back.
+     */
+    @Expose
+    private Integer pendingHintsEndpoints = 0;
+}
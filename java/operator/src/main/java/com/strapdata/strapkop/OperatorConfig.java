@@ -19,6 +19,12 @@ public class OperatorConfig {
 
     TestSuiteConfig test = new TestSuiteConfig();
 
+    WorkQueueConfig workQueue = new WorkQueueConfig();
+
+    NodeStatusConfig nodeStatus = new NodeStatusConfig();
+
+    SidecarConfig sidecar = new SidecarConfig();
+
     @Getter
     @ConfigurationProperties("test")
     public static class TestSuiteConfig {
@@ -34,4 +40,86 @@ public class OperatorConfig {
             // TODO OVH, AWS
         }
     }
+
+    @Getter
+    @ConfigurationProperties("workqueue")
+    public static class WorkQueueConfig {
+
+        /**
+         * Number of reconcile workers shared by all clusters.
+         */
+        int parallelism = 4;
+
+        /**
+         * Requeue delay of the first retry of a failed reconciliation, doubled on each consecutive failure.
+         */
+        long retryBaseDelayMs = 1000;
+
+        /**
+         * Max requeue delay of a failed reconciliation.
+         */
+        long retryMaxDelayMs = 300000;
+
+        /**
+         * Global rate (per second) and burst of failed reconciliation requeues.
+         */
+        double retryRate = 10;
+        int retryBurst = 100;
+
+        /**
+         * Delay before reconciling again a datacenter waiting for a condition without event (e.g. busy nodes during a rolling update).
+         */
+        long requeueDelayMs = 10000;
+    }
+
+    @Getter
+    @ConfigurationProperties("nodestatus")
+    public static class NodeStatusConfig {
+
+        /**
+         * Poll interval of the pods not NORMAL, or belonging to a datacenter running an operation.
+         */
+        long minIntervalMs = 5000;
+
+        /**
+         * Max poll interval of the pods stable NORMAL, the interval is doubled on each poll up to this value.
+         */
+        long maxIntervalMs = 60000;
+
+        /**
+         * Max number of concurrent sidecar status requests.
+         */
+        int concurrency = 16;
+
+        /**
+         * Timeout of a sidecar status request.
+         */
+        long timeoutMs = 5000;
+    }
+
+    @Getter
+    @ConfigurationProperties("sidecar")
+    public static class SidecarConfig {
+
+        /**
+         * Http port of the sidecars.
+         */
+        int port = 8080;
+
+        /**
+         * Connect and read timeouts of the sidecar requests.
+         */
+        long connectTimeoutMs = 2000;
+        long readTimeoutMs = 30000;
+
+        /**
+         * Max number of pooled keep-alive connections to each sidecar.
+         */
+        int maxConnectionsPerHost = 4;
+
+        /**
+         * Number of event loop threads of the http client shared by all sidecars.
+         */
+        int threads = 4;
+    }
 }
@@ -6,30 +6,120 @@ import com.strapdata.model.k8s.cassandra.DataCenterStatus;
 import com.strapdata.strapkop.event.ElassandraPod;
 
 import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 @Singleton
-public class DataCenterCache extends Cache<Key, DataCenter> {
+public class DataCenterCache extends IndexedCache<Key, DataCenter> {
+    
+    // index by user configmap key, to find the datacenters mounting a user configmap
+    public static final String USER_CONFIGMAP_INDEX = "user-configmap";
+    
+    // pods of each datacenter, computed for a given datacenter resource version
+    private final Map<Key, DataCenterPods> podsByDataCenter = new ConcurrentHashMap<>();
+    
+    // resource version of our own writes, not yet received by the cache
+    private final Map<Key, String> pendingWrites = new ConcurrentHashMap<>();
+    
+    public DataCenterCache() {
+        addIndex(USER_CONFIGMAP_INDEX, (key, dc) -> (dc.getSpec() == null || dc.getSpec().getUserConfigMapVolumeSource() == null) ?
+                null : new Key(dc.getSpec().getUserConfigMapVolumeSource().getName(), key.getNamespace()));
+    }
+    
+    /**
+     * @return the keys of the datacenters mounting the user configmap
+     */
+    public Set<Key> listByUserConfigMap(final Key configMapKey) {
+        return keysByIndex(USER_CONFIGMAP_INDEX, configMapKey);
+    }
+    
+    @Override
+    public DataCenter put(Key key, DataCenter dataCenter) {
+        final DataCenter previous = super.put(key, dataCenter);
+        if (dataCenter.getMetadata() != null && dataCenter.getMetadata().getResourceVersion() != null) {
+            pendingWrites.remove(key, dataCenter.getMetadata().getResourceVersion());
+        }
+        return previous;
+    }
+    
+    @Override
+    public DataCenter remove(Object key) {
+        pendingWrites.remove(key);
+        return super.remove(key);
+    }
+    
+    /**
+     * Record the resource version returned by one of our writes, so that the cached datacenter is not used until
+     * it includes this write.
+     */
+    public void onWrite(final Key key, final String resourceVersion) {
+        pendingWrites.put(key, resourceVersion);
+        final DataCenter cached = get(key);
+        if (cached != null && resourceVersion.equals(cached.getMetadata().getResourceVersion())) {
+            pendingWrites.remove(key, resourceVersion);
+        }
+    }
+    
+    /**
+     * Record the resource version of a datacenter read from the api, to stop waiting for a write the cache may have missed.
+     */
+    public void onRead(final Key key, final String resourceVersion) {
+        final DataCenter cached = get(key);
+        if (cached != null && Objects.equals(resourceVersion, cached.getMetadata().getResourceVersion())) {
+            pendingWrites.remove(key);
+        }
+    }
     
     /**
-     * Collect a list of ElassandraPod using the datacenter cache, specifically the podStatuses section
+     * @return the cached datacenter when it includes all our writes, or null if it must be read from the api
+     */
+    public DataCenter getIfFresh(final Key key) {
+        if (!isSynced() || pendingWrites.containsKey(key)) {
+            return null;
+        }
+        return get(key);
+    }
+    
+    /**
+     * Collect a list of ElassandraPod using the datacenter cache, specifically the podStatuses section.
+     * The pods of a datacenter are only recomputed when its resource version changes.
      */
     public List<ElassandraPod> listPods() {
+        podsByDataCenter.keySet().retainAll(this.keySet());
+        
+        final List<ElassandraPod> pods = new ArrayList<>();
+        for (Map.Entry<Key, DataCenter> entry : this.entrySet()) {
+            final DataCenter dataCenter = entry.getValue();
+            DataCenterPods dataCenterPods = podsByDataCenter.get(entry.getKey());
+            if (dataCenterPods == null || !Objects.equals(dataCenterPods.resourceVersion, dataCenter.getMetadata().getResourceVersion())) {
+                dataCenterPods = new DataCenterPods(dataCenter);
+                podsByDataCenter.put(entry.getKey(), dataCenterPods);
+            }
+            pods.addAll(dataCenterPods.pods);
+        }
+        return pods;
+    }
+    
+    private static class DataCenterPods {
+        final String resourceVersion;
+        final List<ElassandraPod> pods;
         
-        return this.values().stream()
-                // for each dc, get a stream of pods, and flat map everything
-                .flatMap(dataCenter ->
-                        // filter out the dc with empty status
-                        Optional.ofNullable(dataCenter.getStatus())
-                                .map(DataCenterStatus::getElassandraNodeStatuses)
-                                // map each dc to a stream of ElassandraPods
-                                .map(elassandraNodeStatusMap -> elassandraNodeStatusMap.keySet().stream()
-                                        .map(podName -> ElassandraPod.fromName(dataCenter, podName)))
-                                // filtered dc will got an empty stream instead
-                                .orElseGet(Stream::empty)
-                ).collect(Collectors.toList());
+        DataCenterPods(final DataCenter dataCenter) {
+            this.resourceVersion = dataCenter.getMetadata().getResourceVersion();
+            // filter out the dc with empty status
+            this.pods = Optional.ofNullable(dataCenter.getStatus())
+                    .map(DataCenterStatus::getElassandraNodeStatuses)
+                    .map(elassandraNodeStatusMap -> elassandraNodeStatusMap.keySet().stream()
+                            .map(podName -> ElassandraPod.fromName(dataCenter, podName))
+                            .collect(Collectors.toList()))
+                    .orElse(Collections.emptyList());
+        }
     }
 }
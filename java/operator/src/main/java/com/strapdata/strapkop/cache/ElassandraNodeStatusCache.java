@@ -1,32 +1,42 @@
 package com.strapdata.strapkop.cache;
 
+import com.strapdata.model.Key;
 import com.strapdata.model.k8s.cassandra.DataCenter;
 import com.strapdata.model.sidecar.ElassandraNodeStatus;
 import com.strapdata.strapkop.event.ElassandraPod;
 
 import javax.inject.Singleton;
+import java.util.Arrays;
 import java.util.Objects;
 
 @Singleton
-public class ElassandraNodeStatusCache extends Cache<ElassandraPod, ElassandraNodeStatus> {
+public class ElassandraNodeStatusCache extends IndexedCache<ElassandraPod, ElassandraNodeStatus> {
+    
+    // index by datacenter key
+    public static final String DATACENTER_INDEX = "datacenter";
+    // index by (namespace, datacenter, rack, status)
+    public static final String RACK_STATUS_INDEX = "rack-status";
+    
+    public ElassandraNodeStatusCache() {
+        addIndex(DATACENTER_INDEX, (pod, status) -> new Key(pod.getParent(), pod.getNamespace()));
+        addIndex(RACK_STATUS_INDEX, (pod, status) -> rackStatus(pod.getNamespace(), pod.getParent(), pod.getRack(), status));
+    }
     
     public void purgeDataCenter(final DataCenter dc) {
-        this.entrySet().removeIf(e ->
-                Objects.equals(e.getKey().getParent(), dc.getMetadata().getName()) &&
-                        Objects.equals(e.getKey().getNamespace(), dc.getMetadata().getNamespace()));
+        removeByIndex(DATACENTER_INDEX, new Key(dc.getMetadata()));
     }
 
     public boolean isNormal(ElassandraPod pod) {
         return ElassandraNodeStatus.NORMAL.equals(getOrDefault(pod, ElassandraNodeStatus.UNKNOWN));
     }
 
-    public long countNodesInStateForRack(String rack, ElassandraNodeStatus status) {
+    public long countNodesInStateForRack(DataCenter dc, String rack, ElassandraNodeStatus status) {
         Objects.requireNonNull(rack, "rack paramter is null");
         Objects.requireNonNull(status, "status paramter is null");
-        long result =  this.entrySet().stream()
-                .filter(e -> rack.equals(e.getKey().getRack()))
-                .filter(e -> status.equals(e.getValue()))
-                .count();
-        return result;
+        return countByIndex(RACK_STATUS_INDEX, rackStatus(dc.getMetadata().getNamespace(), dc.getMetadata().getName(), rack, status));
+    }
+    
+    private static Object rackStatus(String namespace, String parent, String rack, ElassandraNodeStatus status) {
+        return Arrays.asList(namespace, parent, rack, status);
     }
 }
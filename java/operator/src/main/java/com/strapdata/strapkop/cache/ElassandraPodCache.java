@@ -0,0 +1,46 @@
+package com.strapdata.strapkop.cache;
+
+import com.strapdata.model.Key;
+import io.kubernetes.client.models.V1Pod;
+
+import javax.inject.Singleton;
+import java.util.Arrays;
+import java.util.Optional;
+
+@Singleton
+public class ElassandraPodCache extends IndexedCache<Key, V1Pod> {
+    
+    // index by namespace and pod IP address, pods without IP are not indexed
+    public static final String POD_IP_INDEX = "pod-ip";
+    
+    public ElassandraPodCache() {
+        addIndex(POD_IP_INDEX, (key, pod) -> (pod.getStatus() == null || pod.getStatus().getPodIP() == null) ?
+                null : Arrays.asList(key.getNamespace(), pod.getStatus().getPodIP()));
+    }
+    
+    /**
+     * An IP address may be briefly shared by a terminated pod and a new one, the pod not terminated nor being
+     * deleted is preferred.
+     *
+     * @return the pod having the IP address in the namespace
+     */
+    public Optional<V1Pod> getByPodIp(final String namespace, final String podIp) {
+        V1Pod found = null;
+        for (Key key : keysByIndex(POD_IP_INDEX, Arrays.asList(namespace, podIp))) {
+            final V1Pod pod = get(key);
+            if (pod == null) {
+                continue;
+            }
+            if (isLive(pod)) {
+                return Optional.of(pod);
+            }
+            found = pod;
+        }
+        return Optional.ofNullable(found);
+    }
+    
+    private static boolean isLive(final V1Pod pod) {
+        final String phase = pod.getStatus().getPhase();
+        return pod.getMetadata().getDeletionTimestamp() == null && !"Succeeded".equals(phase) && !"Failed".equals(phase);
+    }
+}
@@ -0,0 +1,76 @@
+package com.strapdata.strapkop.cache;
+
+import com.strapdata.model.Key;
+import com.strapdata.model.k8s.cassandra.DataCenter;
+import io.kubernetes.client.models.V1ConfigMap;
+import io.kubernetes.client.models.V1ConfigMapVolumeSource;
+import io.kubernetes.client.models.V1ObjectMeta;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Memoize the configmaps generated for datacenters, by configmap key, so that unchanged reconciliations
+ * reuse the generated content and fingerprint. An entry is only valid for the version it was generated from.
+ */
+@Singleton
+public class GeneratedConfigMapCache extends IndexedCache<Key, GeneratedConfigMapCache.Entry> {
+    
+    // index by datacenter key
+    public static final String DATACENTER_INDEX = "datacenter";
+    
+    public GeneratedConfigMapCache() {
+        addIndex(DATACENTER_INDEX, (key, entry) -> new Key(entry.getParent(), key.getNamespace()));
+    }
+    
+    /**
+     * @return the entry generated from the given version, or null
+     */
+    public Entry get(final Key key, final String version) {
+        final Entry entry = get(key);
+        return (entry != null && entry.getVersion().equals(version)) ? entry : null;
+    }
+    
+    public void purgeDataCenter(final DataCenter dc) {
+        removeByIndex(DATACENTER_INDEX, new Key(dc.getMetadata()));
+    }
+    
+    /**
+     * A generated configmap and its volume source, only read through copies as configmaps are modified when applied.
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Entry {
+        private final String parent;
+        private final String version;
+        private final V1ConfigMap configMap;
+        private final V1ConfigMapVolumeSource volumeSource;
+        private final String mountName;
+        private final String mountPath;
+        private final String fingerprint;
+        
+        public V1ConfigMap copyConfigMap() {
+            final V1ObjectMeta meta = configMap.getMetadata();
+            return new V1ConfigMap()
+                    .metadata(new V1ObjectMeta()
+                            .name(meta.getName())
+                            .namespace(meta.getNamespace())
+                            .labels(meta.getLabels() == null ? null : new HashMap<>(meta.getLabels()))
+                            .annotations(meta.getAnnotations() == null ? null : new HashMap<>(meta.getAnnotations()))
+                            .ownerReferences(meta.getOwnerReferences() == null ? null : new ArrayList<>(meta.getOwnerReferences())))
+                    .data(configMap.getData() == null ? null : new HashMap<>(configMap.getData()))
+                    .binaryData(configMap.getBinaryData() == null ? null : new HashMap<>(configMap.getBinaryData()));
+        }
+        
+        public V1ConfigMapVolumeSource copyVolumeSource() {
+            return new V1ConfigMapVolumeSource()
+                    .name(volumeSource.getName())
+                    .defaultMode(volumeSource.getDefaultMode())
+                    .optional(volumeSource.isOptional())
+                    .items(volumeSource.getItems() == null ? null : new ArrayList<>(volumeSource.getItems()));
+        }
+    }
+}
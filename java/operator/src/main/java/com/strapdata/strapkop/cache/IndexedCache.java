@@ -0,0 +1,239 @@
+package com.strapdata.strapkop.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * A cache maintaining secondary indexes, to get or count the entries having an index value without scanning the whole cache.
+ *
+ * Indexes are updated with the entries under the cache lock, while reads remain lock free. Entries must be
+ * modified through the map methods, the keySet(), entrySet() and values() views are read-only.
+ *
+ * @param <K>
+ * @param <V>
+ */
+public class IndexedCache<K, V> extends Cache<K, V> {
+
+    private final Map<String, Index> indexes = new HashMap<>();
+
+    /**
+     * Declare an index, to call from the cache constructor.
+     *
+     * @param name the index name
+     * @param indexFunction compute the index value of an entry, or null to not index the entry
+     */
+    protected void addIndex(final String name, final BiFunction<K, V, Object> indexFunction) {
+        indexes.put(name, new Index(indexFunction));
+    }
+
+    /**
+     * @return the keys having the index value (a read-only live view)
+     */
+    public Set<K> keysByIndex(final String index, final Object value) {
+        final Set<K> keys = getIndex(index).entries.get(value);
+        return (keys == null) ? Collections.emptySet() : Collections.unmodifiableSet(keys);
+    }
+
+    /**
+     * @return the index values having at least one entry (a read-only live view)
+     */
+    public Set<Object> indexValues(final String index) {
+        return Collections.unmodifiableSet(getIndex(index).entries.keySet());
+    }
+
+    /**
+     * @return the number of entries having the index value, in constant time
+     */
+    public int countByIndex(final String index, final Object value) {
+        final Set<K> keys = getIndex(index).entries.get(value);
+        return (keys == null) ? 0 : keys.size();
+    }
+
+    /**
+     * Remove the entries having the index value.
+     *
+     * @return the removed entries
+     */
+    public synchronized Map<K, V> removeByIndex(final String index, final Object value) {
+        final Map<K, V> removed = new HashMap<>();
+        for (K key : new ArrayList<>(keysByIndex(index, value))) {
+            final V previous = remove(key);
+            if (previous != null) {
+                removed.put(key, previous);
+            }
+        }
+        return removed;
+    }
+
+    @Override
+    public synchronized V put(K key, V value) {
+        final V previous = super.put(key, value);
+        reindex(key, previous, value);
+        return previous;
+    }
+
+    @Override
+    public synchronized V putIfAbsent(K key, V value) {
+        final V previous = super.putIfAbsent(key, value);
+        if (previous == null) {
+            reindex(key, null, value);
+        }
+        return previous;
+    }
+
+    @Override
+    public synchronized void putAll(Map<? extends K, ? extends V> m) {
+        for (Map.Entry<? extends K, ? extends V> entry : m.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public synchronized V remove(Object key) {
+        final V previous = super.remove(key);
+        if (previous != null) {
+            reindex((K) key, previous, null);
+        }
+        return previous;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public synchronized boolean remove(Object key, Object value) {
+        final boolean removed = super.remove(key, value);
+        if (removed) {
+            reindex((K) key, (V) value, null);
+        }
+        return removed;
+    }
+
+    @Override
+    public synchronized V replace(K key, V value) {
+        final V previous = super.replace(key, value);
+        if (previous != null) {
+            reindex(key, previous, value);
+        }
+        return previous;
+    }
+
+    @Override
+    public synchronized boolean replace(K key, V oldValue, V newValue) {
+        final boolean replaced = super.replace(key, oldValue, newValue);
+        if (replaced) {
+            reindex(key, oldValue, newValue);
+        }
+        return replaced;
+    }
+
+    @Override
+    public synchronized V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        final V previous = get(key);
+        final V value = super.compute(key, remappingFunction);
+        reindex(key, previous, value);
+        return value;
+    }
+
+    @Override
+    public synchronized V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        final V previous = get(key);
+        final V value = super.computeIfAbsent(key, mappingFunction);
+        reindex(key, previous, value);
+        return value;
+    }
+
+    @Override
+    public synchronized V computeIfPresent(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        final V previous = get(key);
+        final V value = super.computeIfPresent(key, remappingFunction);
+        reindex(key, previous, value);
+        return value;
+    }
+
+    @Override
+    public synchronized V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        final V previous = get(key);
+        final V merged = super.merge(key, value, remappingFunction);
+        reindex(key, previous, merged);
+        return merged;
+    }
+
+    @Override
+    public synchronized void replaceAll(BiFunction<? super K, ? super V, ? extends V> function) {
+        for (K key : keySet()) {
+            computeIfPresent(key, function);
+        }
+    }
+
+    @Override
+    public synchronized void clear() {
+        super.clear();
+        for (Index index : indexes.values()) {
+            index.entries.clear();
+        }
+    }
+
+    @Override
+    public Set<K> keySet() {
+        return Collections.unmodifiableSet(super.keySet());
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        return Collections.unmodifiableSet(super.entrySet());
+    }
+
+    @Override
+    public Collection<V> values() {
+        return Collections.unmodifiableCollection(super.values());
+    }
+
+    // called with the cache lock held
+    private void reindex(final K key, final V previous, final V value) {
+        for (Index index : indexes.values()) {
+            final Object previousIndexValue = (previous == null) ? null : index.indexFunction.apply(key, previous);
+            final Object indexValue = (value == null) ? null : index.indexFunction.apply(key, value);
+            if (Objects.equals(previousIndexValue, indexValue)) {
+                continue;
+            }
+            if (previousIndexValue != null) {
+                final Set<K> keys = index.entries.get(previousIndexValue);
+                if (keys != null) {
+                    keys.remove(key);
+                    if (keys.isEmpty()) {
+                        index.entries.remove(previousIndexValue);
+                    }
+                }
+            }
+            if (indexValue != null) {
+                index.entries.computeIfAbsent(indexValue, k -> ConcurrentHashMap.newKeySet()).add(key);
+            }
+        }
+    }
+
+    private Index getIndex(final String name) {
+        final Index index = indexes.get(name);
+        if (index == null) {
+            throw new IllegalArgumentException("unknown cache index=" + name);
+        }
+        return index;
+    }
+
+    private class Index {
+        final BiFunction<K, V, Object> indexFunction;
+        // keys by index value
+        final Map<Object, Set<K>> entries = new ConcurrentHashMap<>();
+
+        Index(final BiFunction<K, V, Object> indexFunction) {
+            this.indexFunction = indexFunction;
+        }
+    }
+}
@@ -1,10 +1,35 @@
 package com.strapdata.strapkop.cache;
 
 import com.strapdata.model.Key;
+import com.strapdata.strapkop.k8s.OperatorLabels;
 import io.kubernetes.client.models.V1Node;
 
 import javax.inject.Singleton;
+import java.util.Map;
+import java.util.TreeMap;
 
 @Singleton
-public class NodeCache extends Cache<Key, V1Node> {
+public class NodeCache extends IndexedCache<Key, V1Node> {
+    
+    // index by zone label, nodes without zone label are indexed under NO_ZONE
+    public static final String ZONE_INDEX = "zone";
+    public static final String NO_ZONE = "";
+    
+    public NodeCache() {
+        addIndex(ZONE_INDEX, (key, node) -> {
+            final String zone = (node.getMetadata().getLabels() == null) ? null : node.getMetadata().getLabels().get(OperatorLabels.ZONE);
+            return (zone == null) ? NO_ZONE : zone;
+        });
+    }
+    
+    /**
+     * @return the number of nodes by zone name, sorted by zone name
+     */
+    public Map<String, Integer> countNodesByZone() {
+        final Map<String, Integer> nodesByZone = new TreeMap<>();
+        for (Object zone : indexValues(ZONE_INDEX)) {
+            nodesByZone.put((String) zone, countByIndex(ZONE_INDEX, zone));
+        }
+        return nodesByZone;
+    }
 }
@@ -0,0 +1,10 @@
+package com.strapdata.strapkop.cache;
+
+import com.strapdata.model.Key;
+import io.kubernetes.client.models.V1Secret;
+
+import javax.inject.Singleton;
+
+@Singleton
+public class SecretCache extends Cache<Key, V1Secret> {
+}
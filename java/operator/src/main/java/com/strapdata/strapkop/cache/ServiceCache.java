@@ -0,0 +1,10 @@
+package com.strapdata.strapkop.cache;
+
+import com.strapdata.model.Key;
+import io.kubernetes.client.models.V1Service;
+
+import javax.inject.Singleton;
+
+@Singleton
+public class ServiceCache extends Cache<Key, V1Service> {
+}
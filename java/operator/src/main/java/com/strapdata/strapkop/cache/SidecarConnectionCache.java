@@ -1,40 +1,29 @@
 package com.strapdata.strapkop.cache;
 
+import com.strapdata.model.Key;
 import com.strapdata.model.k8s.cassandra.DataCenter;
 import com.strapdata.strapkop.event.ElassandraPod;
 import com.strapdata.strapkop.sidecar.SidecarClient;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 import javax.inject.Singleton;
-import java.util.Objects;
 
 /**
  * This cache associate a sidecar client to an elassandra pod.
  */
 @Singleton
-public class SidecarConnectionCache extends Cache<ElassandraPod, SidecarClient> {
+public class SidecarConnectionCache extends IndexedCache<ElassandraPod, SidecarClient> {
     
-    private static final Logger logger = LoggerFactory.getLogger(SidecarConnectionCache.class);
+    // index by datacenter key
+    public static final String DATACENTER_INDEX = "datacenter";
+    
+    public SidecarConnectionCache() {
+        addIndex(DATACENTER_INDEX, (pod, client) -> new Key(pod.getParent(), pod.getNamespace()));
+    }
     
     /**
-     * Remove all clients that match a given datacenter. Client are closed before removal
+     * Remove all clients that match a given datacenter, their connections are owned by the shared http client.
      */
     public void purgeDataCenter(final DataCenter dc) {
-        this.entrySet().removeIf(e -> {
-                    if (Objects.equals(e.getKey().getParent(), dc.getMetadata().getName()) &&
-                            Objects.equals(e.getKey().getNamespace(), dc.getMetadata().getNamespace())) {
-                        try {
-                            e.getValue().close();
-                        }
-                        catch (RuntimeException exc) {
-                            logger.warn("runtime error while closing sidecar client for pod={}", e.getKey().getName(), exc);
-                        }
-                        return true;
-                    } else {
-                        return false;
-                    }
-                }
-        );
+        removeByIndex(DATACENTER_INDEX, new Key(dc.getMetadata()));
     }
 }
@@ -1,10 +1,42 @@
 package com.strapdata.strapkop.cache;
 
 import com.strapdata.model.Key;
+import com.strapdata.strapkop.k8s.OperatorLabels;
 import io.kubernetes.client.models.V1StatefulSet;
 
 import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 
 @Singleton
-public class StatefulsetCache extends Cache<Key, V1StatefulSet> {
+public class StatefulsetCache extends IndexedCache<Key, V1StatefulSet> {
+    
+    // index by namespace, cluster and datacenter names, statefulsets without these labels are not indexed
+    public static final String DATACENTER_INDEX = "datacenter";
+    
+    public StatefulsetCache() {
+        addIndex(DATACENTER_INDEX, (key, sts) -> {
+            final Map<String, String> labels = sts.getMetadata().getLabels();
+            if (labels == null || labels.get(OperatorLabels.CLUSTER) == null || labels.get(OperatorLabels.DATACENTER) == null) {
+                return null;
+            }
+            return Arrays.asList(key.getNamespace(), labels.get(OperatorLabels.CLUSTER), labels.get(OperatorLabels.DATACENTER));
+        });
+    }
+    
+    /**
+     * @return the statefulsets of a datacenter (one per rack)
+     */
+    public List<V1StatefulSet> listByDataCenter(final String namespace, final String clusterName, final String datacenterName) {
+        final List<V1StatefulSet> statefulSets = new ArrayList<>();
+        for (Key key : keysByIndex(DATACENTER_INDEX, Arrays.asList(namespace, clusterName, datacenterName))) {
+            final V1StatefulSet sts = get(key);
+            if (sts != null) {
+                statefulSets.add(sts);
+            }
+        }
+        return statefulSets;
+    }
 }
@@ -4,13 +4,16 @@ import com.strapdata.model.ClusterKey;
 import com.strapdata.model.Key;
 import com.strapdata.model.sidecar.ElassandraNodeStatus;
 import com.strapdata.strapkop.cache.ElassandraNodeStatusCache;
+import com.strapdata.strapkop.cache.ElassandraPodCache;
 import com.strapdata.strapkop.event.ElassandraPod;
 import com.strapdata.strapkop.k8s.OperatorNames;
 import com.strapdata.strapkop.pipeline.WorkQueue;
 import com.strapdata.strapkop.reconcilier.DataCenterUpdateReconcilier;
 import io.kubernetes.client.ApiException;
+import io.kubernetes.client.models.V1Pod;
 import io.micronaut.http.HttpStatus;
 import io.micronaut.http.MediaType;
+import io.micronaut.http.annotation.Body;
 import io.micronaut.http.annotation.Controller;
 import io.micronaut.http.annotation.Get;
 import io.micronaut.http.annotation.Post;
@@ -20,7 +23,10 @@ import org.slf4j.LoggerFactory;
 import javax.inject.Inject;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 
 
 @Controller("/node")
@@ -31,6 +37,9 @@ public class NodeController {
     @Inject
     ElassandraNodeStatusCache elassandraNodeStatusCache;
 
+    @Inject
+    ElassandraPodCache elassandraPodCache;
+
     @Inject
     WorkQueue workQueue;
 
@@ -48,19 +57,82 @@ public class NodeController {
      */
     @Post(value = "/{namespace}/{endpoint}/{status}", produces = MediaType.APPLICATION_JSON)
     public HttpStatus update(String namespace, String endpoint, ElassandraNodeStatus status) throws ApiException, UnknownHostException {
-        InetAddress addr = InetAddress.getByName(endpoint);
-        String fqdnPodName = addr.getHostName();
-        String podName = fqdnPodName.substring(0, fqdnPodName.indexOf("."));
+        final Optional<ElassandraPod> pod = updateStatus(namespace, endpoint, status);
+        if (pod.isPresent()) {
+            reconcile(pod.get());
+        }
+        return HttpStatus.OK;
+    }
+
+    /**
+     * Update the status of several Elassandra nodes and trigger one reconciliation per updated datacenter.
+     * Endpoints that cannot be resolved to an Elassandra pod are logged and skipped, so that the notifier does not
+     * retry a batch whose other statuses are already cached.
+     * @param namespace
+     * @param statuses status by endpoint IP address
+     * @return
+     */
+    @Post(value = "/{namespace}", consumes = MediaType.APPLICATION_JSON, produces = MediaType.APPLICATION_JSON)
+    public HttpStatus updateBatch(String namespace, @Body Map<String, ElassandraNodeStatus> statuses) {
+        // one updated pod per datacenter
+        final Map<String, ElassandraPod> updatedPods = new LinkedHashMap<>();
+        for (Map.Entry<String, ElassandraNodeStatus> entry : statuses.entrySet()) {
+            try {
+                updateStatus(namespace, entry.getKey(), entry.getValue()).ifPresent(pod -> updatedPods.putIfAbsent(pod.getParent(), pod));
+            } catch (UnknownHostException | RuntimeException e) {
+                logger.warn("Cannot resolve the pod of namespace={} endpoint={}, ignoring status={}: {}", namespace, entry.getKey(), entry.getValue(), e.toString());
+            }
+        }
+        for (ElassandraPod pod : updatedPods.values()) {
+            try {
+                reconcile(pod);
+            } catch (ApiException | RuntimeException e) {
+                logger.warn("Failed to submit a reconciliation of namespace={} dc={}", pod.getNamespace(), pod.getParent(), e);
+            }
+        }
+        return HttpStatus.OK;
+    }
+
+    /**
+     * Update the cached node status
+     * @return the pod if its status has changed
+     */
+    private Optional<ElassandraPod> updateStatus(String namespace, String endpoint, ElassandraNodeStatus status) throws UnknownHostException {
+        String podName = podName(namespace, endpoint);
         logger.debug("Update cache for namespace={} endpoint={} podName={} status={}", namespace, endpoint, podName, status);
         ElassandraPod pod = ElassandraPod.fromName(namespace, podName);
         ElassandraNodeStatus prevStatus = elassandraNodeStatusCache.put(pod, status);
         if (prevStatus == null || !Objects.equals(status, prevStatus)) {
-           ClusterKey clusterKey = new ClusterKey(pod.getCluster(), namespace);
-           Key dcKey = new Key(OperatorNames.dataCenterResource(pod.getCluster(), pod.getDataCenter()), namespace);
-           logger.debug("Summit a reconcilation for namespace={} cluster={} dc={}", pod.getCluster(), pod.getDataCenter());
-           workQueue.submit(clusterKey, dataCenterUpdateReconcilier.reconcile(dcKey));
+            return Optional.of(pod);
         }
-        return HttpStatus.OK;
+        return Optional.empty();
+    }
+
+    /**
+     * Resolve the pod name from the pod IP index of the pod cache, the reverse DNS lookup is only a fallback
+     * while the cache is not synced or does not know the pod yet.
+     */
+    private String podName(String namespace, String endpoint) throws UnknownHostException {
+        if (elassandraPodCache.isSynced()) {
+            final Optional<V1Pod> pod = elassandraPodCache.getByPodIp(namespace, endpoint);
+            if (pod.isPresent()) {
+                return pod.get().getMetadata().getName();
+            }
+            logger.debug("No pod found for namespace={} endpoint={} in the pod cache, resolving the pod name from DNS", namespace, endpoint);
+        }
+        String fqdnPodName = InetAddress.getByName(endpoint).getHostName();
+        if (fqdnPodName.equals(endpoint)) {
+            throw new UnknownHostException("no reverse DNS name for endpoint=" + endpoint);
+        }
+        int i = fqdnPodName.indexOf(".");
+        return (i < 0) ? fqdnPodName : fqdnPodName.substring(0, i);
+    }
+
+    private void reconcile(ElassandraPod pod) throws ApiException {
+        ClusterKey clusterKey = new ClusterKey(pod.getCluster(), pod.getNamespace());
+        Key dcKey = new Key(OperatorNames.dataCenterResource(pod.getCluster(), pod.getDataCenter()), pod.getNamespace());
+        logger.debug("Summit a reconcilation for namespace={} cluster={} dc={}", pod.getNamespace(), pod.getCluster(), pod.getDataCenter());
+        workQueue.submit(clusterKey, dcKey, dataCenterUpdateReconcilier.reconcile(dcKey));
     }
 
     /**
@@ -1,6 +1,5 @@
 package com.strapdata.strapkop.controllers;
 
-import com.google.common.collect.ImmutableMap;
 import com.strapdata.strapkop.k8s.K8sResourceUtils;
 import com.strapdata.strapkop.k8s.OperatorLabels;
 import com.strapdata.strapkop.k8s.OperatorNames;
@@ -52,17 +51,16 @@ public class SeedsController {
      */
     @Get(value = "/{namespace}/{clusterName}/{datacenterName}", produces = MediaType.APPLICATION_JSON)
     public Single<List<String>> seeds(String namespace, String clusterName, String datacenterName) throws ApiException {
-        return k8sResourceUtils.readDatacenter(new com.strapdata.model.Key(OperatorNames.dataCenterResource(clusterName, datacenterName), namespace))
+        return k8sResourceUtils.readCachedDatacenter(new com.strapdata.model.Key(OperatorNames.dataCenterResource(clusterName, datacenterName), namespace))
                 .map(dataCenter -> {
                 List<String> seeds = new ArrayList<>();
-                k8sResourceUtils.listNamespacedStatefulSets(namespace, null, OperatorLabels.toSelector(OperatorLabels.datacenter(dataCenter)))
+                k8sResourceUtils.listCachedDataCenterStatefulSets(dataCenter)
                         .forEach(statefulSet -> {
                                 if (statefulSet != null && statefulSet.getStatus() != null && statefulSet.getStatus().getCurrentReplicas() != null && statefulSet.getStatus().getCurrentReplicas() > 0) {
                                     String podName = OperatorNames.podName(dataCenter, statefulSet.getMetadata().getLabels().get(OperatorLabels.RACK), 0);
                                     // retreive pod node IP
-                                    final String labelSelector = OperatorLabels.toSelector(ImmutableMap.of(OperatorLabels.POD, podName));
                                     try {
-                                        k8sResourceUtils.listNamespacedPods(namespace, null, labelSelector).forEach(pod -> {
+                                        k8sResourceUtils.readCachedElassandraPod(namespace, podName).ifPresent(pod -> {
                                             String nodeName = pod.getSpec().getNodeName();
                                             logger.debug("found node={}", nodeName);
                                             if (pod.getStatus() != null && pod.getStatus().getHostIP() != null) {
@@ -0,0 +1,34 @@
+package com.strapdata.strapkop.controllers;
+
+import com.strapdata.model.ClusterKey;
+import com.strapdata.strapkop.pipeline.WorkQueue;
+import io.micronaut.http.MediaType;
+import io.micronaut.http.annotation.Controller;
+import io.micronaut.http.annotation.Get;
+
+import javax.inject.Inject;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Expose the reconcile work queue depth.
+ */
+@Controller("/workqueue")
+public class WorkQueueController {
+
+    @Inject
+    WorkQueue workQueue;
+
+    /**
+     * @return the total number of pending items, and the number of pending items by namespace/cluster
+     */
+    @Get(value = "/depth", produces = MediaType.APPLICATION_JSON)
+    public Map<String, Integer> depth() {
+        final Map<String, Integer> depths = new HashMap<>();
+        depths.put("total", workQueue.getQueueDepth());
+        for (Map.Entry<ClusterKey, Integer> entry : workQueue.getQueueDepthByCluster().entrySet()) {
+            depths.put(entry.getKey().getNamespace() + "/" + entry.getKey().getName(), entry.getValue());
+        }
+        return depths;
+    }
+}
@@ -46,7 +46,7 @@ public abstract class AbstractManager<T> {
     }
 
     // per DC  unique key
-    private String key(final DataCenter dataCenter) {
+    protected String key(final DataCenter dataCenter) {
         return dataCenter.getMetadata().getNamespace()+"/"+dataCenter.getSpec().getClusterName()+"/"+dataCenter.getMetadata().getName();
     }
 
@@ -10,11 +10,14 @@ import com.strapdata.strapkop.plugins.Plugin;
 import com.strapdata.strapkop.plugins.PluginRegistry;
 import io.reactivex.Completable;
 import io.reactivex.Single;
+import lombok.AllArgsConstructor;
+import lombok.Data;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.inject.Singleton;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 /**
@@ -25,10 +28,27 @@ import java.util.stream.Collectors;
 public class CqlKeyspaceManager extends AbstractManager<CqlKeyspace> {
     private static final Logger logger = LoggerFactory.getLogger(CqlKeyspaceManager.class);
     private static final Set<String> SYSTEM_KEYSPACES = new HashSet<>(Arrays.asList(new String[] { "system_auth", "system_distributed", "system_traces" }));
+    // target RF of the system keyspaces in each datacenter
+    public static final int SYSTEM_KEYSPACES_RF = 3;
 
 
     final PluginRegistry pluginRegistry;
 
+    // replication in each datacenter of the keyspaces not local to the nodes, as last read from system_schema.keyspaces
+    private final Map<String, Map<String, Replication>> replications = new ConcurrentHashMap<>();
+
+    /**
+     * Replication of a keyspace in a datacenter.
+     */
+    @Data
+    @AllArgsConstructor
+    public static class Replication {
+        // number of replicas of each range in the datacenter
+        int rf;
+        // true when the replicas of a range are placed on distinct racks, as the NetworkTopologyStrategy does
+        boolean rackAware;
+    }
+
     public CqlKeyspaceManager(final PluginRegistry pluginRegistry) {
         super();
         this.pluginRegistry = pluginRegistry;
@@ -38,6 +58,78 @@ public class CqlKeyspaceManager extends AbstractManager<CqlKeyspace> {
         return (dataCenter.getSpec().getDatacenterGroup() != null) ? "elastic_admin_" + dataCenter.getSpec().getDatacenterGroup() : "elastic_admin";
     }
 
+    /**
+     * @return the target replication factor of the system, elastic_admin and managed keyspaces in the datacenter, by keyspace name
+     */
+    public Map<String, Integer> targetReplicationFactors(final DataCenter dataCenter) {
+        final Map<String, Integer> rfs = new HashMap<>();
+        for (String keyspace : SYSTEM_KEYSPACES) {
+            rfs.put(keyspace, SYSTEM_KEYSPACES_RF);
+        }
+        rfs.put(elasticAdminKeyspaceName(dataCenter), dataCenter.getSpec().getReplicas());
+        if (get(dataCenter) != null) {
+            for (CqlKeyspace keyspace : get(dataCenter).values()) {
+                if (keyspace.rf > 0)
+                    rfs.put(keyspace.name, keyspace.rf);
+            }
+        }
+        return rfs;
+    }
+
+    /**
+     * @return the replication in the datacenter of every keyspace not local to the nodes, by keyspace name, as read by
+     * the last {@link #readReplications(DataCenter, CqlSessionSupplier)}, or null if not read yet.
+     */
+    public Map<String, Replication> replications(final DataCenter dataCenter) {
+        return replications.get(key(dataCenter));
+    }
+
+    /**
+     * Read the replication of every keyspace from system_schema.keyspaces. The replications are forgotten when they
+     * cannot be read, so that the decisions depending on them fall back to the safest choice.
+     */
+    public Completable readReplications(final DataCenter dataCenter, final CqlSessionSupplier sessionSupplier) {
+        return Completable.defer(() -> sessionSupplier.getSession(dataCenter).flatMapCompletable(session -> {
+                    final Map<String, Replication> keyspaceReplications = new HashMap<>();
+                    for (Row row : session.execute("SELECT keyspace_name, replication FROM system_schema.keyspaces")) {
+                        final Replication replication = replication(dataCenter, row.getMap("replication", String.class, String.class));
+                        if (replication != null)
+                            keyspaceReplications.put(row.getString("keyspace_name"), replication);
+                    }
+                    replications.put(key(dataCenter), keyspaceReplications);
+                    return Completable.complete();
+                }))
+                .onErrorComplete(e -> {
+                    logger.warn("Failed to read the keyspace replications of dc={}", dataCenter.getMetadata().getName(), e);
+                    replications.remove(key(dataCenter));
+                    return true;
+                });
+    }
+
+    /**
+     * @return the replication in the datacenter of a keyspace having the replication map, or null if the keyspace has
+     * no replica in the datacenter or is local to the nodes.
+     */
+    static Replication replication(final DataCenter dataCenter, final Map<String, String> replication) {
+        final String strategy = replication.get("class");
+        if (strategy == null || strategy.endsWith("LocalStrategy"))
+            return null;
+        if (strategy.endsWith("NetworkTopologyStrategy")) {
+            final int rf = Integer.parseInt(replication.getOrDefault(dataCenter.getSpec().getDatacenterName(), "0"));
+            return (rf > 0) ? new Replication(rf, true) : null;
+        }
+        if (strategy.endsWith("EverywhereStrategy"))
+            return new Replication(dataCenter.getSpec().getReplicas(), true);
+        // SimpleStrategy or a custom strategy, the replicas of a range may be on the same rack
+        return new Replication(Integer.parseInt(replication.getOrDefault("replication_factor", "1")), false);
+    }
+
+    @Override
+    public void remove(final DataCenter dataCenter) {
+        super.remove(dataCenter);
+        replications.remove(key(dataCenter));
+    }
+
     /**
      * Create and adjust keyspace RF
      * @param dataCenter
@@ -73,7 +165,7 @@ public class CqlKeyspaceManager extends AbstractManager<CqlKeyspace> {
                     // adjust RF for system keyspaces
                     for (String keyspace : SYSTEM_KEYSPACES) {
                         try {
-                            updateKeyspaceReplcationMap(dataCenter, keyspace, effectiveRF(dataCenter, 3), sessionSupplier).blockingGet();
+                            updateKeyspaceReplcationMap(dataCenter, keyspace, effectiveRF(dataCenter, SYSTEM_KEYSPACES_RF), sessionSupplier).blockingGet();
                         } catch (Exception e) {
                             logger.warn("Failed to adjust RF for keyspace="+keyspace, e);
                         }
@@ -103,7 +103,7 @@ public class CqlRole implements Cloneable {
         if (this.password != null)
             return Single.just(this);
 
-        return k8sResourceUtils.readNamespacedSecret(dataCenter.getMetadata().getNamespace(), this.secretNameProvider.apply(dataCenter))
+        return k8sResourceUtils.readCachedNamespacedSecret(dataCenter.getMetadata().getNamespace(), this.secretNameProvider.apply(dataCenter))
                 .map(secret -> {
                     byte[] passBytes = secret.getData().get(secretKey);
                     if (passBytes == null) {
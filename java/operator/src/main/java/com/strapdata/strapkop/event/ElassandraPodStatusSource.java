@@ -1,9 +1,17 @@
 package com.strapdata.strapkop.event;
 
+import com.strapdata.model.Key;
+import com.strapdata.model.k8s.cassandra.DataCenter;
+import com.strapdata.model.k8s.cassandra.DataCenterPhase;
+import com.strapdata.model.sidecar.ElassandraEndpointStatus;
 import com.strapdata.model.sidecar.ElassandraNodeStatus;
+import com.strapdata.strapkop.OperatorConfig;
 import com.strapdata.strapkop.cache.DataCenterCache;
 import com.strapdata.strapkop.cache.ElassandraNodeStatusCache;
+import com.strapdata.strapkop.cache.ElassandraPodCache;
 import com.strapdata.strapkop.sidecar.SidecarClientFactory;
+import io.kubernetes.client.models.V1Pod;
+import io.kubernetes.client.models.V1PodStatus;
 import io.reactivex.Observable;
 import io.reactivex.Single;
 import io.reactivex.schedulers.Schedulers;
@@ -11,61 +19,160 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
+/**
+ * Poll the sidecar of each pod for its cassandra node status.
+ *
+ * Polls are scheduled per pod by a {@link NodeStatusPollScheduler}, pods stable NORMAL are polled less often while
+ * pods of a datacenter running an operation are polled at the min interval. Sidecar requests are limited in
+ * concurrency and time, so that hung sidecars cannot delay the status of other pods.
+ *
+ * When some pods of a datacenter are due, the statuses of all its pods are read from the gossip view of a single
+ * NORMAL node. The pods whose gossip status agrees with their cached status are resolved and rescheduled, a pod is
+ * only polled on its own sidecar when the gossip view disagrees with its cached status, or does not know it.
+ */
 @Singleton
 public class ElassandraPodStatusSource implements EventSource<NodeStatusEvent> {
     
     private final Logger logger = LoggerFactory.getLogger(ElassandraPodStatusSource.class);
     
+    // period of the check for pods to poll
+    private static final long TICK_MS = 1000;
     
     private final ElassandraNodeStatusCache elassandraNodeStatusCache;
     private final DataCenterCache dataCenterCache;
+    private final ElassandraPodCache elassandraPodCache;
     private final SidecarClientFactory sidecarClientFactory;
+    private final OperatorConfig.NodeStatusConfig config;
+    final NodeStatusPollScheduler scheduler;
     
-    public ElassandraPodStatusSource(ElassandraNodeStatusCache elassandraNodeStatusCache, DataCenterCache dataCenterCache, SidecarClientFactory sidecarClientFactory) {
+    public ElassandraPodStatusSource(ElassandraNodeStatusCache elassandraNodeStatusCache, DataCenterCache dataCenterCache, ElassandraPodCache elassandraPodCache,
+                                     SidecarClientFactory sidecarClientFactory, OperatorConfig operatorConfig) {
         this.elassandraNodeStatusCache = elassandraNodeStatusCache;
         this.dataCenterCache = dataCenterCache;
+        this.elassandraPodCache = elassandraPodCache;
         this.sidecarClientFactory = sidecarClientFactory;
+        this.config = operatorConfig.getNodeStatus();
+        this.scheduler = new NodeStatusPollScheduler(config.getMinIntervalMs(), config.getMaxIntervalMs());
     }
     
     @Override
     public Observable<NodeStatusEvent> createObservable() {
-        return Observable.interval(10, TimeUnit.SECONDS)
+        return Observable.interval(TICK_MS, TimeUnit.MILLISECONDS)
                 .observeOn(Schedulers.io())
-                .map(i -> { logger.debug("run node status health check on thread {}", Thread.currentThread().getName()); return i; })
-                .flatMap(i -> Observable.fromIterable(dataCenterCache.listPods()))
-                .map(pod -> new NodeStatusEvent().setPod(pod))
-                .flatMapSingle(event -> {
-                            try {
-                                return sidecarClientFactory.clientForPod(event.getPod()).status()
-                                        .observeOn(Schedulers.io())
-                                        .map(nodeStatus -> {
-                                            logger.debug("requesting pod={} sidecar for health check={} on thread {}", event.getPod().getName(), nodeStatus, Thread.currentThread().getName());
-                                            event.setCurrentMode(nodeStatus);
-                                            return event;
-                                        })
-                                        .onErrorReturn(throwable -> {
-                                            logger.debug("failed to get the status from sidecar pod=" + event.getPod().getName(), throwable.getMessage());
-                                            sidecarClientFactory.invalidateClient(event.getPod());
-                                            event.setCurrentMode(ElassandraNodeStatus.UNKNOWN);
-                                            return event;
-                                        });
-                            } catch (Exception e) {
-                                logger.warn("failed to get the status of pod=" + event.getPod().getName(), e);
-                                sidecarClientFactory.invalidateClient(event.getPod());
-                                return Single.just(event).map(v -> { v.setCurrentMode(ElassandraNodeStatus.UNKNOWN); return v;});
-                            }
-                        }
-                )
+                .flatMap(i -> {
+                    final List<ElassandraPod> pods = dataCenterCache.listPods();
+                    final Set<ElassandraPod> due = new HashSet<>(scheduler.due(pods, System.currentTimeMillis()));
+                    // events having a current mode are resolved from the gossip view, one call per datacenter
+                    return Observable.fromIterable(byDataCenter(pods))
+                            .filter(dcPods -> dcPods.stream().anyMatch(due::contains))
+                            .flatMap(dcPods -> fromGossip(dcPods, due).toObservable().flatMapIterable(events -> events), config.getConcurrency());
+                })
+                .flatMap(event -> (event.getCurrentMode() != null) ? Observable.just(event) : fromSidecar(event).toObservable(), config.getConcurrency())
                 .map(event -> {
                     event.setPreviousMode(elassandraNodeStatusCache.getOrDefault(event.getPod(), ElassandraNodeStatus.UNKNOWN));
                     logger.debug("caching {}={} previous={}", event.getPod(), event.getCurrentMode(),  event.getPreviousMode());
                     elassandraNodeStatusCache.put(event.getPod(), event.getCurrentMode());
+                    scheduler.polled(event.getPod(), event.getPreviousMode(), event.getCurrentMode(), isBusy(event.getPod()), System.currentTimeMillis());
                     return event;
                 })
                 .filter(event -> !Objects.equals(event.getCurrentMode(), event.getPreviousMode()));
     }
     
+    private static Collection<List<ElassandraPod>> byDataCenter(final List<ElassandraPod> pods) {
+        return pods.stream()
+                .collect(Collectors.groupingBy(pod -> new Key(pod.getParent(), pod.getNamespace()), LinkedHashMap::new, Collectors.toList()))
+                .values();
+    }
+    
+    /**
+     * Resolve the status of the pods of a datacenter from the gossip view of one of its NORMAL nodes.
+     * Pods not due whose status agrees are rescheduled, those whose status disagrees are polled now.
+     * @return an event for each pod to poll, without current mode when the pod must be polled on its own sidecar
+     */
+    Single<List<NodeStatusEvent>> fromGossip(final List<ElassandraPod> dcPods, final Set<ElassandraPod> due) {
+        final Map<ElassandraPod, NodeStatusEvent> events = new LinkedHashMap<>();
+        dcPods.stream().filter(due::contains).forEach(pod -> events.put(pod, new NodeStatusEvent().setPod(pod)));
+        final Optional<ElassandraPod> viewer = dcPods.stream()
+                .filter(elassandraNodeStatusCache::isNormal)
+                .findFirst();
+        if (!viewer.isPresent() || !elassandraPodCache.isSynced()) {
+            return Single.just(new ArrayList<>(events.values()));
+        }
+        
+        return Single.defer(() -> sidecarClientFactory.clientForPod(viewer.get()).endpoints())
+                .timeout(config.getTimeoutMs(), TimeUnit.MILLISECONDS)
+                .onErrorReturn(throwable -> {
+                    logger.debug("failed to get the endpoints from sidecar pod={}: {}", viewer.get().getName(), throwable.toString());
+                    return Collections.emptyList();
+                })
+                .map(endpoints -> {
+                    final Map<String, ElassandraNodeStatus> statusByEndpoint = new HashMap<>();
+                    for (ElassandraEndpointStatus endpoint : endpoints) {
+                        statusByEndpoint.put(endpoint.getEndpoint(), endpoint.getStatus());
+                    }
+                    final long now = System.currentTimeMillis();
+                    int resolved = 0;
+                    for (ElassandraPod pod : dcPods) {
+                        final ElassandraNodeStatus status = podIp(pod).map(statusByEndpoint::get).orElse(null);
+                        final boolean agrees = status != null && status.equals(elassandraNodeStatusCache.get(pod));
+                        if (due.contains(pod)) {
+                            if (agrees) {
+                                events.get(pod).setCurrentMode(status);
+                                resolved++;
+                            }
+                        } else if (agrees) {
+                            scheduler.confirmed(pod, status, isBusy(pod), now);
+                            resolved++;
+                        } else if (status != null && scheduler.expedite(pod)) {
+                            events.put(pod, new NodeStatusEvent().setPod(pod));
+                        }
+                    }
+                    logger.debug("pods={} resolved from the gossip view of pod={}, polled={}",
+                            resolved, viewer.get().getName(), events.values().stream().filter(event -> event.getCurrentMode() == null).count());
+                    return new ArrayList<>(events.values());
+                });
+    }
+    
+    private Single<NodeStatusEvent> fromSidecar(final NodeStatusEvent event) {
+        return Single.defer(() -> sidecarClientFactory.clientForPod(event.getPod()).status())
+                .timeout(config.getTimeoutMs(), TimeUnit.MILLISECONDS)
+                .observeOn(Schedulers.io())
+                .map(nodeStatus -> {
+                    logger.debug("requesting pod={} sidecar for health check={} on thread {}", event.getPod().getName(), nodeStatus, Thread.currentThread().getName());
+                    event.setCurrentMode(nodeStatus);
+                    return event;
+                })
+                .onErrorReturn(throwable -> {
+                    logger.debug("failed to get the status from sidecar pod={}: {}", event.getPod().getName(), throwable.toString());
+                    sidecarClientFactory.invalidateClient(event.getPod());
+                    event.setCurrentMode(ElassandraNodeStatus.UNKNOWN);
+                    return event;
+                });
+    }
+    
+    private Optional<String> podIp(final ElassandraPod pod) {
+        return Optional.ofNullable(elassandraPodCache.get(new Key(pod.getName(), pod.getNamespace())))
+                .map(V1Pod::getStatus)
+                .map(V1PodStatus::getPodIP);
+    }
+    
+    // true when the pod datacenter is running an operation
+    private boolean isBusy(final ElassandraPod pod) {
+        final DataCenter dataCenter = dataCenterCache.get(new Key(pod.getParent(), pod.getNamespace()));
+        return dataCenter == null || dataCenter.getStatus() == null || !DataCenterPhase.RUNNING.equals(dataCenter.getStatus().getPhase());
+    }
 }
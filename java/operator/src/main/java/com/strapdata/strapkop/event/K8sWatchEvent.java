@@ -27,6 +27,16 @@ public class K8sWatchEvent<ResourceT> {
     private Type type;
     private ResourceT resource;
 
+    /**
+     * True for a MODIFIED event that does not change the resource generation (only status or metadata changed).
+     */
+    private boolean statusOnly = false;
+
+    public K8sWatchEvent(Type type, ResourceT resource) {
+        this.type = type;
+        this.resource = resource;
+    }
+
     public boolean isUpdate() {
         return creationEventTypes.contains(this.type);
     }
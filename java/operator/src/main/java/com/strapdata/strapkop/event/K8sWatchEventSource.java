@@ -1,24 +1,39 @@
 package com.strapdata.strapkop.event;
 
-import com.google.common.reflect.TypeToken;
 import com.google.gson.Gson;
-import com.google.gson.JsonObject;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.strapdata.model.Key;
+import com.strapdata.strapkop.cache.Cache;
 import com.strapdata.strapkop.pipeline.K8sWatchResourceAdapter;
 import io.kubernetes.client.ApiClient;
 import io.kubernetes.client.ApiException;
 import io.kubernetes.client.ApiResponse;
-import io.kubernetes.client.util.Watch;
+import io.kubernetes.client.models.V1Status;
+import io.reactivex.Maybe;
 import io.reactivex.Observable;
 import io.reactivex.schedulers.Schedulers;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.inject.Named;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
+import static com.strapdata.strapkop.event.K8sWatchEvent.Type.ADDED;
+import static com.strapdata.strapkop.event.K8sWatchEvent.Type.DELETED;
 import static com.strapdata.strapkop.event.K8sWatchEvent.Type.ERROR;
 import static com.strapdata.strapkop.event.K8sWatchEvent.Type.INITIAL;
+import static com.strapdata.strapkop.event.K8sWatchEvent.Type.MODIFIED;
 
 /**
  * A Event source for kubernetes resources.
@@ -26,23 +41,32 @@ import static com.strapdata.strapkop.event.K8sWatchEvent.Type.INITIAL;
  * @param <ResourceT>
  * @param <ResourceListT>
  */
-@SuppressWarnings("UnstableApiUsage")
 public class K8sWatchEventSource<ResourceT, ResourceListT> implements EventSource<K8sWatchEvent<ResourceT>> {
     
     private final Logger logger = LoggerFactory.getLogger(K8sWatchEventSource.class);
     
+    // watch event type of bookmarks, carrying only the current resource version
+    private static final String BOOKMARK = "BOOKMARK";
+    
     private final ApiClient watchClient;
     private final K8sWatchResourceAdapter<ResourceT, ResourceListT> adapter;
+    private final Cache<Key, ResourceT> store;
     private final Gson gson;
     
     private String lastResourceVersion = null;
     
-    public K8sWatchEventSource(final @Named("watchClient") ApiClient watchClient, final K8sWatchResourceAdapter<ResourceT, ResourceListT> adapter) {
+    /**
+     * @param watchClient
+     * @param adapter
+     * @param store the informer store, flagged as synced once the initial list has been emitted, and used to diff relists
+     */
+    public K8sWatchEventSource(final @Named("watchClient") ApiClient watchClient, final K8sWatchResourceAdapter<ResourceT, ResourceListT> adapter, final Cache<Key, ResourceT> store) {
         this.watchClient = watchClient;
         watchClient.getHttpClient().setReadTimeout(180, TimeUnit.SECONDS);
         logger.debug("watchClient read timeout={}", watchClient.getHttpClient().getReadTimeout());
 
         this.adapter = adapter;
+        this.store = store;
         this.gson = watchClient.getJSON().getGson();
     }
     
@@ -59,7 +83,15 @@ public class K8sWatchEventSource<ResourceT, ResourceListT> implements EventSourc
         
         // if last resource version is not null, restart watching where we stopped
         if (lastResourceVersion != null) {
-            return createWatchObservable();
+            try {
+                return createWatchObservable();
+            } catch (ApiException e) {
+                if (e.getCode() != 410) {
+                    throw e;
+                }
+                logger.info("{} resource version={} expired, relisting", adapter.getName(), lastResourceVersion);
+                lastResourceVersion = null;
+            }
         }
         
         // otherwise take a snapshot of the current state, then watch
@@ -67,7 +99,9 @@ public class K8sWatchEventSource<ResourceT, ResourceListT> implements EventSourc
     }
     
     /**
-     * Fetch initial existing resource and create a cold observable out of it
+     * Fetch existing resources and create a cold observable out of it.
+     * The first list emits INITIAL events, a relist (after the watch resource version expired) only emits the
+     * ADDED, MODIFIED or DELETED resources compared to the store.
      *
      * @return a cold observable
      * @throws ApiException
@@ -77,13 +111,40 @@ public class K8sWatchEventSource<ResourceT, ResourceListT> implements EventSourc
         final ApiResponse<ResourceListT> apiResponse = watchClient.execute(adapter.createListApiCall(false, null), adapter.getResourceListType());
         // TODO: is it necessary to handle different response statuses here...
         final ResourceListT resourceList = apiResponse.getData();
-        logger.info("Fetched {} existing {}", adapter.getListItems(resourceList).size(), adapter.getName());
+        final Collection<? extends ResourceT> resources = adapter.getListItems(resourceList);
+        logger.info("Fetched {} existing {}", resources.size(), adapter.getName());
         lastResourceVersion = adapter.getListMetadata(resourceList).getResourceVersion();
-        return Observable.fromIterable(
-                adapter.getListItems(resourceList)).map(resource -> new K8sWatchEvent<>(INITIAL, resource)
-        );
+        
+        if (!store.isSynced()) {
+            return Observable.fromIterable(resources)
+                    .map(resource -> new K8sWatchEvent<ResourceT>(INITIAL, resource))
+                    .doOnComplete(() -> {
+                        logger.debug("{} store synced with {} resources", adapter.getName(), store.size());
+                        store.setSynced(true);
+                    });
+        }
+        
+        final List<K8sWatchEvent<ResourceT>> deltas = new ArrayList<>();
+        final Set<Key> listedKeys = new HashSet<>();
+        for (ResourceT resource : resources) {
+            final Key key = adapter.getKey(resource);
+            listedKeys.add(key);
+            final ResourceT cached = store.get(key);
+            if (cached == null) {
+                deltas.add(new K8sWatchEvent<>(ADDED, resource));
+            } else if (!Objects.equals(adapter.getMetadata(cached).getResourceVersion(), adapter.getMetadata(resource).getResourceVersion())) {
+                deltas.add(new K8sWatchEvent<>(MODIFIED, resource));
+            }
+        }
+        for (Map.Entry<Key, ResourceT> entry : store.entrySet()) {
+            if (!listedKeys.contains(entry.getKey())) {
+                deltas.add(new K8sWatchEvent<>(DELETED, entry.getValue()));
+            }
+        }
+        logger.info("Relisted {} {}, {} changed since the last watch", resources.size(), adapter.getName(), deltas.size());
+        return Observable.fromIterable(deltas);
     }
-    
+
     /**
      * Create a cold observable out of a k8s watch
      *
@@ -92,9 +153,7 @@ public class K8sWatchEventSource<ResourceT, ResourceListT> implements EventSourc
      */
     private Observable<K8sWatchEvent<ResourceT>> createWatchObservable() throws ApiException {
         logger.debug("Creating k8s watch for resource : {}", adapter.getName());
-        final Watch<JsonObject> watch = Watch.createWatch(watchClient, adapter.createListApiCall(true, lastResourceVersion),
-                new TypeToken<Watch.Response<JsonObject>>() {
-                }.getType());
+        final K8sWatchStream watch = new K8sWatchStream(adapter.createListApiCall(true, lastResourceVersion));
         return Observable.fromIterable(watch)
                 .observeOn(Schedulers.io()).observeOn(Schedulers.io()) // blocking io seemed to happen on computational thread...
                 .doOnError(t -> {
@@ -105,38 +164,90 @@ public class K8sWatchEventSource<ResourceT, ResourceListT> implements EventSourc
                     }
                     logger.warn("Watcher for adapter '{}' receive an error", t);
                 })
-                .map(this::objectJsonToEvent)
+                .concatMapMaybe(this::lineToEvent)
                 .doFinally(watch::close);
     }
     
     /**
-     * Transform a raw ObjectJson into a Event ready to be published by the observable
+     * Decode a raw watch line into a Event ready to be published by the observable.
+     * The watched object is streamed directly to the resource type, without building an intermediate json tree
+     * (except when the object comes before the event type in the line).
      *
-     * @param response whatever ObjectJson returned by k8s api
-     * @return the event
+     * @param line a json encoded watch event, as returned by k8s api
+     * @return the event, or empty if the line cannot be decoded
      */
-    private K8sWatchEvent<ResourceT> objectJsonToEvent(Watch.Response<JsonObject> response) {
-        final K8sWatchEvent.Type type = K8sWatchEvent.Type.valueOf(response.type);
+    private Maybe<K8sWatchEvent<ResourceT>> lineToEvent(String line) {
+        String typeName = null;
+        K8sWatchEvent.Type type = null;
         ResourceT resource = null;
+        V1Status status = null;
         
-        if (type == ERROR) {
-            logger.error("{} list watch failed with status={}.", adapter.getName(), response.status);
-        } else {
-            // TODO: unit test with bad a datacenter CRD causing JsonSyntaxException
-            try {
-                resource = gson.fromJson(response.object, adapter.getResourceType());
+        // TODO: unit test with bad a datacenter CRD causing JsonSyntaxException
+        try (JsonReader reader = new JsonReader(new StringReader(line))) {
+            JsonElement deferredObject = null;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "type":
+                        typeName = reader.nextString();
+                        break;
+                    case "object":
+                        if (typeName == null) {
+                            deferredObject = gson.fromJson(reader, JsonElement.class);
+                        } else if (ERROR.name().equals(typeName)) {
+                            status = gson.fromJson(reader, V1Status.class);
+                        } else {
+                            resource = gson.fromJson(reader, adapter.getResourceType());
+                        }
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.endObject();
+            
+            if (typeName == null) {
+                throw new JsonSyntaxException("missing watch event type");
+            }
+            if (deferredObject != null) {
+                if (ERROR.name().equals(typeName)) {
+                    status = gson.fromJson(deferredObject, V1Status.class);
+                } else {
+                    resource = gson.fromJson(deferredObject, adapter.getResourceType());
+                }
+            }
+            if (!ERROR.name().equals(typeName)) {
+                if (resource == null) {
+                    throw new JsonSyntaxException("missing watch event object");
+                }
                 lastResourceVersion = adapter.getMetadata(resource).getResourceVersion();
-            } catch(JsonSyntaxException e) {
-                logger.warn("lastResourceVersion={} unrecoverable JSON syntax exception for type={}: {}", lastResourceVersion, type, e.getMessage());
-                // inc version to ignore it on next retry
-                lastResourceVersion = Long.toString( Long.parseLong(lastResourceVersion) + 1);
             }
+            if (BOOKMARK.equals(typeName)) {
+                logger.trace("{} watch bookmark lastResourceVersion={}", adapter.getName(), lastResourceVersion);
+                return Maybe.empty();
+            }
+            type = K8sWatchEvent.Type.valueOf(typeName);
+        } catch(JsonSyntaxException | IllegalArgumentException | IllegalStateException | IOException e) {
+            logger.warn("lastResourceVersion={} unrecoverable JSON syntax exception for type={}: {}", lastResourceVersion, typeName, e.getMessage());
+            // inc version to ignore it on next retry
+            lastResourceVersion = Long.toString( Long.parseLong(lastResourceVersion) + 1);
+            return Maybe.empty();
         }
-
+        
+        if (type == ERROR) {
+            if (status != null && status.getCode() != null && status.getCode() == 410) {
+                // the watch is closed by the api server, the next observable relists and emits the missed changes
+                logger.info("{} resource version={} expired, relisting", adapter.getName(), lastResourceVersion);
+                lastResourceVersion = null;
+                return Maybe.empty();
+            }
+            logger.error("{} list watch failed with status={}.", adapter.getName(), status);
+        }
+        
         K8sWatchEvent<ResourceT> watchEvent = new K8sWatchEvent<ResourceT>()
                 .setType(type)
                 .setResource(resource);
         logger.trace("new event={} lastResourceVersion={} type={} resource={}", watchEvent, lastResourceVersion, type, resource);
-        return watchEvent;
+        return Maybe.just(watchEvent);
     }
 }
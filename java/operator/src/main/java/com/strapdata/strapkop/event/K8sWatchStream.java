@@ -0,0 +1,75 @@
+package com.strapdata.strapkop.event;
+
+import com.squareup.okhttp.Call;
+import com.squareup.okhttp.Response;
+import io.kubernetes.client.ApiException;
+import okio.BufferedSource;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Iterate over the raw lines of a k8s watch response, each line being a json encoded watch event.
+ * Unlike {@link io.kubernetes.client.util.Watch}, lines are not decoded here, so that the caller can decode
+ * the watched object in a single pass to its own type.
+ */
+class K8sWatchStream implements Iterable<String>, Iterator<String>, Closeable {
+
+    private final Response response;
+    private final BufferedSource source;
+
+    private String nextLine = null;
+
+    K8sWatchStream(final Call call) throws ApiException {
+        try {
+            this.response = call.execute();
+        } catch (IOException e) {
+            throw new ApiException(e);
+        }
+
+        if (!response.isSuccessful()) {
+            String body = null;
+            try {
+                body = response.body().string();
+            } catch (IOException e) {
+                // ignored, the status code is enough
+            }
+            throw new ApiException(response.message(), response.code(), response.headers().toMultimap(), body);
+        }
+        this.source = response.body().source();
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        return this;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (nextLine == null) {
+            try {
+                nextLine = source.readUtf8Line();
+            } catch (IOException e) {
+                throw new RuntimeException("IO Exception during hasNext method.", e);
+            }
+        }
+        return nextLine != null;
+    }
+
+    @Override
+    public String next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        final String line = nextLine;
+        nextLine = null;
+        return line;
+    }
+
+    @Override
+    public void close() throws IOException {
+        response.body().close();
+    }
+}
@@ -0,0 +1,134 @@
+package com.strapdata.strapkop.event;
+
+import com.strapdata.model.sidecar.ElassandraNodeStatus;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Compute when each pod status must be polled :
+ * <ul>
+ *     <li>the first poll of a pod is delayed by a random part of the interval, to spread the polls over time,</li>
+ *     <li>the interval of a pod is doubled after each poll showing a stable NORMAL node, up to the max interval,</li>
+ *     <li>the interval is reset to the min interval when the status changes, is not NORMAL, or the datacenter is busy,</li>
+ *     <li>a pod is not polled again until its previous poll completes,</li>
+ *     <li>a pod whose status is confirmed by another source is rescheduled as if it was polled,</li>
+ *     <li>a pod whose status is contradicted by another source is polled ahead of its schedule.</li>
+ * </ul>
+ */
+class NodeStatusPollScheduler {
+
+    private static final double JITTER = 0.1;
+
+    private final long minIntervalMs;
+    private final long maxIntervalMs;
+
+    private final Map<ElassandraPod, PodSchedule> schedules = new ConcurrentHashMap<>();
+
+    NodeStatusPollScheduler(final long minIntervalMs, final long maxIntervalMs) {
+        this.minIntervalMs = minIntervalMs;
+        this.maxIntervalMs = Math.max(minIntervalMs, maxIntervalMs);
+    }
+
+    /**
+     * @return the pods to poll now, removing the schedules of the pods no longer listed
+     */
+    List<ElassandraPod> due(final Collection<ElassandraPod> pods, final long nowMs) {
+        schedules.keySet().retainAll(new HashSet<>(pods));
+        final List<ElassandraPod> due = new ArrayList<>();
+        for (ElassandraPod pod : pods) {
+            final PodSchedule schedule = schedules.computeIfAbsent(pod,
+                    p -> new PodSchedule(minIntervalMs, nowMs + ThreadLocalRandom.current().nextLong(minIntervalMs + 1)));
+            synchronized (schedule) {
+                if (!schedule.inFlight && schedule.nextPollMs <= nowMs) {
+                    schedule.inFlight = true;
+                    due.add(pod);
+                }
+            }
+        }
+        return due;
+    }
+
+    /**
+     * Schedule the next poll of a pod.
+     *
+     * @param busy true when the pod datacenter is running an operation
+     */
+    void polled(final ElassandraPod pod, final ElassandraNodeStatus previous, final ElassandraNodeStatus current, final boolean busy, final long nowMs) {
+        final PodSchedule schedule = schedules.get(pod);
+        if (schedule == null) {
+            return;
+        }
+        synchronized (schedule) {
+            reschedule(schedule, previous, current, busy, nowMs);
+            schedule.inFlight = false;
+        }
+    }
+
+    /**
+     * Schedule the next poll of a pod not being polled, whose unchanged status was confirmed by another source.
+     *
+     * @param busy true when the pod datacenter is running an operation
+     */
+    void confirmed(final ElassandraPod pod, final ElassandraNodeStatus status, final boolean busy, final long nowMs) {
+        final PodSchedule schedule = schedules.get(pod);
+        if (schedule == null) {
+            return;
+        }
+        synchronized (schedule) {
+            if (!schedule.inFlight) {
+                reschedule(schedule, status, status, busy, nowMs);
+            }
+        }
+    }
+
+    /**
+     * Poll a pod now, ahead of its schedule.
+     *
+     * @return true if the pod must be polled, false if not scheduled or already being polled
+     */
+    boolean expedite(final ElassandraPod pod) {
+        final PodSchedule schedule = schedules.get(pod);
+        if (schedule == null) {
+            return false;
+        }
+        synchronized (schedule) {
+            if (schedule.inFlight) {
+                return false;
+            }
+            schedule.inFlight = true;
+            return true;
+        }
+    }
+
+    // called with the schedule lock held
+    private void reschedule(final PodSchedule schedule, final ElassandraNodeStatus previous, final ElassandraNodeStatus current, final boolean busy, final long nowMs) {
+        final boolean stable = !busy && ElassandraNodeStatus.NORMAL.equals(current) && current.equals(previous);
+        schedule.intervalMs = stable ? Math.min(maxIntervalMs, schedule.intervalMs * 2) : minIntervalMs;
+        schedule.nextPollMs = nowMs + schedule.intervalMs + (long) (schedule.intervalMs * JITTER * ThreadLocalRandom.current().nextDouble());
+    }
+
+    /**
+     * @return the current poll interval of a pod, or -1 if not scheduled
+     */
+    long interval(final ElassandraPod pod) {
+        final PodSchedule schedule = schedules.get(pod);
+        return (schedule == null) ? -1 : schedule.intervalMs;
+    }
+
+    private static class PodSchedule {
+        long intervalMs;
+        long nextPollMs;
+        boolean inFlight = false;
+
+        PodSchedule(final long intervalMs, final long nextPollMs) {
+            this.intervalMs = intervalMs;
+            this.nextPollMs = nextPollMs;
+        }
+    }
+}
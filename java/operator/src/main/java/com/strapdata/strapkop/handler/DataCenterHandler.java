@@ -7,7 +7,6 @@ import com.strapdata.strapkop.event.K8sWatchEvent;
 import com.strapdata.strapkop.pipeline.WorkQueue;
 import com.strapdata.strapkop.reconcilier.DataCenterDeleteReconcilier;
 import com.strapdata.strapkop.reconcilier.DataCenterUpdateReconcilier;
-import io.reactivex.Completable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -29,17 +28,12 @@ public class DataCenterHandler extends TerminalHandler<K8sWatchEvent<DataCenter>
     public void accept(K8sWatchEvent<DataCenter> event) throws Exception {
         logger.debug("Processing a DataCenter event={}", event);
         
-        Completable completable = null;
         if (event.isUpdate()) {
-            completable = dataCenterUpdateReconcilier.reconcile(new Key(event.getResource().getMetadata()));
+            final Key key = new Key(event.getResource().getMetadata());
+            workQueue.submit(new ClusterKey(event.getResource()), key, dataCenterUpdateReconcilier.reconcile(key));
         }
         else if (event.isDeletion()) {
-            completable = dataCenterDeleteReconcilier.reconcile(event.getResource());
+            workQueue.submit(new ClusterKey(event.getResource()), dataCenterDeleteReconcilier.reconcile(event.getResource()));
         }
-        else {
-            return;
-        }
-
-        workQueue.submit(new ClusterKey(event.getResource()), completable);
     }
 }
@@ -45,9 +45,11 @@ public class ElassandraNodeStatusHandler extends TerminalHandler<NodeStatusEvent
         if (event.getCurrentMode() != null && reconcileOperationModes.contains(event.getCurrentMode())) {
             final String clusterName = event.getPod().getCluster();
             logger.debug("triggering dc reconciliation because of a ElassandraPodCrdStatus change");
+            final Key dcKey = new Key(event.getPod().getParent(), event.getPod().getNamespace());
             workQueue.submit(
                     new ClusterKey(clusterName, event.getPod().getNamespace()),
-                    dataCenterReconcilier.reconcile(new Key(event.getPod().getParent(), event.getPod().getNamespace())));
+                    dcKey,
+                    dataCenterReconcilier.reconcile(dcKey));
         }
     }
 }
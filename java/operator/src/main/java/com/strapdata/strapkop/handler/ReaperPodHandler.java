@@ -40,9 +40,11 @@ public class ReaperPodHandler extends TerminalHandler<K8sWatchEvent<V1Pod>> {
 
             if (pod.isReady()) {
                 ClusterKey clusterKey = new ClusterKey(pod.getClusterName(), pod.getNamespace());
+                final Key dcKey = new Key(pod.getElassandraDatacenter(), pod.getNamespace());
                 workQueue.submit(
                         clusterKey,
-                        dataCenterReconcilier.reconcile((new Key(pod.getElassandraDatacenter(), pod.getNamespace()))));
+                        dcKey,
+                        dataCenterReconcilier.reconcile(dcKey));
             }
         } else {
             logger.trace("Ignore ReaperPod event={}", event);
@@ -55,8 +55,10 @@ public class StatefulsetHandler extends TerminalHandler<K8sWatchEvent<V1Stateful
         final String dcResourceName = sts.getMetadata().getLabels().get(OperatorLabels.PARENT);
         final String clusterName = sts.getMetadata().getLabels().get(OperatorLabels.CLUSTER);
         
+        final Key dcKey = new Key(dcResourceName, sts.getMetadata().getNamespace());
         workQueue.submit(
                 new ClusterKey(clusterName, sts.getMetadata().getNamespace()),
-                dataCenterReconcilier.reconcile((new Key(dcResourceName, sts.getMetadata().getNamespace()))));
+                dcKey,
+                dataCenterReconcilier.reconcile(dcKey));
     }
 }
\ No newline at end of file
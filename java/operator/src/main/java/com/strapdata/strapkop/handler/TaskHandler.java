@@ -2,12 +2,15 @@ package com.strapdata.strapkop.handler;
 
 import com.google.common.collect.ImmutableList;
 import com.strapdata.model.ClusterKey;
+import com.strapdata.model.Key;
 import com.strapdata.model.k8s.task.Task;
 import com.strapdata.model.k8s.task.TaskSpec;
 import com.strapdata.strapkop.event.K8sWatchEvent;
+import com.strapdata.strapkop.k8s.OperatorNames;
 import com.strapdata.strapkop.pipeline.WorkQueue;
 import com.strapdata.strapkop.reconcilier.BackupTaskReconcilier;
 import com.strapdata.strapkop.reconcilier.CleanupTaskReconcilier;
+import com.strapdata.strapkop.reconcilier.DataCenterUpdateReconcilier;
 import com.strapdata.strapkop.reconcilier.TaskReconcilier;
 import com.strapdata.strapkop.reconcilier.TestTaskReconcilier;
 import io.vavr.Tuple;
@@ -32,14 +35,18 @@ public class TaskHandler extends TerminalHandler<K8sWatchEvent<Task>> {
     
     private final WorkQueue workQueue;
     
+    private final DataCenterUpdateReconcilier dataCenterUpdateReconcilier;
+    
     private final List<Tuple2<TaskReconcilier, Function<TaskSpec, Object>>> taskFamily;
     
     public TaskHandler(WorkQueue workQueue,
                        BackupTaskReconcilier backupTaskReconcilier,
                        CleanupTaskReconcilier cleanupTaskReconcilier,
-                       TestTaskReconcilier testTaskReconcilier) {
+                       TestTaskReconcilier testTaskReconcilier,
+                       DataCenterUpdateReconcilier dataCenterUpdateReconcilier) {
      
         this.workQueue = workQueue;
+        this.dataCenterUpdateReconcilier = dataCenterUpdateReconcilier;
     
         taskFamily = ImmutableList.of(
                 Tuple.of(backupTaskReconcilier, TaskSpec::getBackup),
@@ -68,6 +75,14 @@ public class TaskHandler extends TerminalHandler<K8sWatchEvent<Task>> {
         
         if (creationEventTypes.contains(event.getType())) {
             workQueue.submit(key, candidates.get(0)._1.prepareSubmitCompletable(event.getResource()));
+            if (event.getType() == MODIFIED && isTerminated(event.getResource())) {
+                // the dc unlock is a status only update that does not trigger a reconcile, so reconcile the dc here
+                // to apply any spec change received while the task was executing.
+                final Key dcKey = new Key(
+                        OperatorNames.dataCenterResource(event.getResource().getSpec().getCluster(), event.getResource().getSpec().getDatacenter()),
+                        event.getResource().getMetadata().getNamespace());
+                workQueue.submit(key, dcKey, dataCenterUpdateReconcilier.reconcile(dcKey));
+            }
         }
         else if (deletionEventTypes.contains(event.getType())) {
             // TODO: implement task cancellation
@@ -79,4 +94,7 @@ public class TaskHandler extends TerminalHandler<K8sWatchEvent<Task>> {
         // TODO: write message in task status
     }
     
+    private static boolean isTerminated(Task task) {
+        return task.getStatus() != null && task.getStatus().getPhase() != null && task.getStatus().getPhase().isTerminated();
+    }
 }
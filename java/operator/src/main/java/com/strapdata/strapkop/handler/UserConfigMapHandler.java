@@ -0,0 +1,54 @@
+package com.strapdata.strapkop.handler;
+
+import com.strapdata.model.ClusterKey;
+import com.strapdata.model.Key;
+import com.strapdata.model.k8s.cassandra.DataCenter;
+import com.strapdata.strapkop.cache.DataCenterCache;
+import com.strapdata.strapkop.event.K8sWatchEvent;
+import com.strapdata.strapkop.pipeline.WorkQueue;
+import com.strapdata.strapkop.reconcilier.DataCenterUpdateReconcilier;
+import io.kubernetes.client.models.V1ConfigMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.EnumSet;
+
+import static com.strapdata.strapkop.event.K8sWatchEvent.Type.*;
+
+/**
+ * Reconcile the datacenters mounting a user configmap when it changes.
+ */
+@Handler
+public class UserConfigMapHandler extends TerminalHandler<K8sWatchEvent<V1ConfigMap>> {
+    
+    private final Logger logger = LoggerFactory.getLogger(UserConfigMapHandler.class);
+    
+    // initial events are ignored, as all datacenters are reconciled on startup
+    private static final EnumSet<K8sWatchEvent.Type> acceptedEventTypes = EnumSet.of(ADDED, MODIFIED, DELETED);
+    
+    private final WorkQueue workQueue;
+    private final DataCenterCache dataCenterCache;
+    private final DataCenterUpdateReconcilier dataCenterUpdateReconcilier;
+    
+    public UserConfigMapHandler(WorkQueue workQueue, DataCenterCache dataCenterCache, DataCenterUpdateReconcilier dataCenterUpdateReconcilier) {
+        this.workQueue = workQueue;
+        this.dataCenterCache = dataCenterCache;
+        this.dataCenterUpdateReconcilier = dataCenterUpdateReconcilier;
+    }
+    
+    @Override
+    public void accept(K8sWatchEvent<V1ConfigMap> event) throws Exception {
+        if (!acceptedEventTypes.contains(event.getType())) {
+            return;
+        }
+        
+        final Key configMapKey = new Key(event.getResource().getMetadata());
+        for (Key key : dataCenterCache.listByUserConfigMap(configMapKey)) {
+            final DataCenter dataCenter = dataCenterCache.get(key);
+            if (dataCenter != null) {
+                logger.debug("user configmap={} {}, reconciling datacenter={}", configMapKey.getName(), event.getType(), key.getName());
+                workQueue.submit(new ClusterKey(dataCenter), key, dataCenterUpdateReconcilier.reconcile(key));
+            }
+        }
+    }
+}
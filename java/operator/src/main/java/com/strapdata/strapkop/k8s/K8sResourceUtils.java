@@ -2,7 +2,10 @@ package com.strapdata.strapkop.k8s;
 
 import com.google.common.base.Strings;
 import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterators;
+import com.google.gson.Gson;
 import com.google.gson.JsonSyntaxException;
 import com.google.gson.reflect.TypeToken;
 import com.squareup.okhttp.Call;
@@ -12,6 +15,13 @@ import com.strapdata.model.k8s.task.Task;
 import com.strapdata.model.k8s.task.TaskList;
 import com.strapdata.model.k8s.task.TaskPhase;
 import com.strapdata.model.k8s.task.TaskSpec;
+import com.strapdata.strapkop.cache.Cache;
+import com.strapdata.strapkop.cache.ConfigMapCache;
+import com.strapdata.strapkop.cache.DataCenterCache;
+import com.strapdata.strapkop.cache.ElassandraPodCache;
+import com.strapdata.strapkop.cache.SecretCache;
+import com.strapdata.strapkop.cache.ServiceCache;
+import com.strapdata.strapkop.cache.StatefulsetCache;
 import io.kubernetes.client.ApiException;
 import io.kubernetes.client.ApiResponse;
 import io.kubernetes.client.apis.AppsV1Api;
@@ -22,6 +32,7 @@ import io.kubernetes.client.models.*;
 import io.reactivex.Completable;
 import io.reactivex.Single;
 import io.reactivex.functions.Action;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -32,9 +43,14 @@ import java.lang.reflect.Type;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.concurrent.Callable;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 @Singleton
 public class K8sResourceUtils {
@@ -51,6 +67,24 @@ public class K8sResourceUtils {
     
     @Inject
     protected ExtensionsV1beta1Api extensionsV1beta1Api;
+    
+    @Inject
+    protected StatefulsetCache statefulsetCache;
+    
+    @Inject
+    protected ElassandraPodCache elassandraPodCache;
+    
+    @Inject
+    protected DataCenterCache dataCenterCache;
+    
+    @Inject
+    protected ServiceCache serviceCache;
+    
+    @Inject
+    protected ConfigMapCache configMapCache;
+    
+    @Inject
+    protected SecretCache secretCache;
 
     @FunctionalInterface
     public interface ApiCallable {
@@ -93,13 +127,42 @@ public class K8sResourceUtils {
         });
     }
 
+    /**
+     * Stamp the desired resource with a hash of its content, and look for an informer-cached live resource having the same hash.
+     * @return the live resource when the desired state is already applied, meaning that the write can be skipped.
+     */
+    private <T> Optional<T> findAppliedResource(final Cache<Key, T> cache, final T desired, final V1ObjectMeta desiredMeta, final Function<T, V1ObjectMeta> metadata) {
+        // the desired resource may be applied more than once, so the hash is computed without the hash annotation
+        if (desiredMeta.getAnnotations() != null) {
+            desiredMeta.getAnnotations().remove(OperatorLabels.DESIRED_STATE_HASH);
+            if (desiredMeta.getAnnotations().isEmpty()) {
+                desiredMeta.setAnnotations(null);
+            }
+        }
+        final String hash = DigestUtils.sha1Hex(coreApi.getApiClient().getJSON().serialize(desired));
+        desiredMeta.putAnnotationsItem(OperatorLabels.DESIRED_STATE_HASH, hash);
+
+        final T live = cache.isSynced() ? cache.get(new Key(desiredMeta)) : null;
+        if (live != null && metadata.apply(live).getAnnotations() != null &&
+                hash.equals(metadata.apply(live).getAnnotations().get(OperatorLabels.DESIRED_STATE_HASH))) {
+            return Optional.of(live);
+        }
+        return Optional.empty();
+    }
+
     public static Completable deleteResource(final Callable<V1Status> deleteResourceRunnable) {
         return Completable.fromCallable(deleteResourceRunnable);
     }
 
     public Single<V1Service> createOrReplaceNamespacedService(final V1Service service) throws ApiException {
         final String namespace = service.getMetadata().getNamespace();
-        return createOrReplaceResource(
+        return Single.defer(() -> {
+            final Optional<V1Service> applied = findAppliedResource(serviceCache, service, service.getMetadata(), V1Service::getMetadata);
+            if (applied.isPresent()) {
+                logger.trace("Service={} is up to date", service.getMetadata().getName());
+                return Single.just(applied.get());
+            }
+            return createOrReplaceResource(
                 () -> {
                     V1Service service2 = coreApi.createNamespacedService(namespace, service, null, null, null);
                     logger.debug("Created namespaced Service={}", service.getMetadata().getName());
@@ -111,7 +174,8 @@ public class K8sResourceUtils {
         //                        logger.debug("Replaced namespaced Service.");
                     return service;
                 }
-        );
+            );
+        });
     }
 
     public Single<V1Service> createNamespacedService(final V1Service service) throws ApiException {
@@ -149,7 +213,13 @@ public class K8sResourceUtils {
 
     public Single<V1ConfigMap> createOrReplaceNamespacedConfigMap(final V1ConfigMap configMap) throws ApiException {
         final String namespace = configMap.getMetadata().getNamespace();
-        return createOrReplaceResource(
+        return Single.defer(() -> {
+            final Optional<V1ConfigMap> applied = findAppliedResource(configMapCache, configMap, configMap.getMetadata(), V1ConfigMap::getMetadata);
+            if (applied.isPresent()) {
+                logger.trace("ConfigMap={} is up to date", configMap.getMetadata().getName());
+                return Single.just(applied.get());
+            }
+            return createOrReplaceResource(
                 () -> {
                     V1ConfigMap configMap2 = coreApi.createNamespacedConfigMap(namespace, configMap, null, null, null);
                     logger.debug("Created namespaced ConfigMap={}", configMap.getMetadata().getName());
@@ -160,7 +230,8 @@ public class K8sResourceUtils {
                     logger.debug("Replaced namespaced ConfigMap={}", configMap.getMetadata().getName());
                     return configMap2;
                 }
-        );
+            );
+        });
     }
 
     public Single<V1ConfigMap> readNamespacedConfigMap(final String namespace, final String name) {
@@ -181,6 +252,17 @@ public class K8sResourceUtils {
         });
     }
 
+    /**
+     * Read a configmap from the informer cache when synced, or from the k8s api otherwise.
+     * The cached configmap is shared, it must not be modified.
+     */
+    public Single<V1ConfigMap> readCachedNamespacedConfigMap(final String namespace, final String name) {
+        return Single.defer(() -> {
+            final V1ConfigMap cached = configMapCache.isSynced() ? configMapCache.get(new Key(name, namespace)) : null;
+            return (cached != null) ? Single.just(cached) : readNamespacedConfigMap(namespace, name);
+        });
+    }
+
     public Single<V1Deployment> createOrReplaceNamespacedDeployment(final V1Deployment deployment) throws ApiException {
         final String namespace = deployment.getMetadata().getNamespace();
         return createOrReplaceResource(
@@ -233,6 +315,40 @@ public class K8sResourceUtils {
         );
     }
 
+    /**
+     * Scale a statefulset with a json patch of spec.replicas only, rather than replacing the whole object.
+     * The patch first tests the expected replicas, so that a concurrent scaling fails (422) instead of being overwritten,
+     * while concurrent changes of other fields do not conflict.
+     */
+    public Single<V1StatefulSet> scaleNamespacedStatefulSet(final V1StatefulSet statefulset, final int replicas) throws ApiException {
+        final String namespace = statefulset.getMetadata().getNamespace();
+        final List<Map<String, Object>> patch = ImmutableList.of(
+                ImmutableMap.<String, Object>of("op", "test", "path", "/spec/replicas", "value", statefulset.getSpec().getReplicas()),
+                ImmutableMap.<String, Object>of("op", "replace", "path", "/spec/replicas", "value", replicas));
+        return Single.fromCallable(() -> {
+                    V1StatefulSet statefulSet2 = appsApi.patchNamespacedStatefulSet(statefulset.getMetadata().getName(), namespace, patch, null, null);
+                    logger.debug("Patched namespaced StatefulSet={} in namespace={} replicas={}", statefulset.getMetadata().getName(), namespace, replicas);
+                    return statefulSet2;
+                }
+        );
+    }
+
+    /**
+     * Set the rolling update partition of a statefulset, pods having an ordinal greater or equal to the partition are updated.
+     */
+    public Single<V1StatefulSet> updateNamespacedStatefulSetPartition(final V1StatefulSet statefulset, final int partition) throws ApiException {
+        final String namespace = statefulset.getMetadata().getNamespace();
+        final List<Map<String, Object>> patch = ImmutableList.of(
+                ImmutableMap.<String, Object>of("op", "test", "path", "/spec/updateStrategy/rollingUpdate/partition", "value", statefulset.getSpec().getUpdateStrategy().getRollingUpdate().getPartition()),
+                ImmutableMap.<String, Object>of("op", "replace", "path", "/spec/updateStrategy/rollingUpdate/partition", "value", partition));
+        return Single.fromCallable(() -> {
+                    V1StatefulSet statefulSet2 = appsApi.patchNamespacedStatefulSet(statefulset.getMetadata().getName(), namespace, patch, null, null);
+                    logger.debug("Patched namespaced StatefulSet={} in namespace={} partition={}", statefulset.getMetadata().getName(), namespace, partition);
+                    return statefulSet2;
+                }
+        );
+    }
+
     public Single<V1Secret> readNamespacedSecret(final String namespace, final String name) {
         return Single.fromCallable(new Callable<V1Secret>() {
             @Override
@@ -251,6 +367,17 @@ public class K8sResourceUtils {
         });
     }
 
+    /**
+     * Read a secret from the informer cache when synced, or from the k8s api otherwise.
+     * The cached secret is shared, it must not be modified.
+     */
+    public Single<V1Secret> readCachedNamespacedSecret(final String namespace, final String name) {
+        return Single.defer(() -> {
+            final V1Secret cached = secretCache.isSynced() ? secretCache.get(new Key(name, namespace)) : null;
+            return (cached != null) ? Single.just(cached) : readNamespacedSecret(namespace, name);
+        });
+    }
+
     public V1ServiceAccount readNamespacedServiceAccount(final String namespace, final String name) throws ApiException {
             try {
                 coreApi.getApiClient().setDebugging(true);
@@ -268,7 +395,13 @@ public class K8sResourceUtils {
 
     public Single<V1Secret> createOrReplaceNamespacedSecret(final V1Secret secret) throws ApiException {
         final String namespace = secret.getMetadata().getNamespace();
-        return createOrReplaceResource(
+        return Single.defer(() -> {
+            final Optional<V1Secret> applied = findAppliedResource(secretCache, secret, secret.getMetadata(), V1Secret::getMetadata);
+            if (applied.isPresent()) {
+                logger.trace("Secret={} is up to date", secret.getMetadata().getName());
+                return Single.just(applied.get());
+            }
+            return createOrReplaceResource(
                 () -> {
                     V1Secret secret2 = coreApi.createNamespacedSecret(namespace, secret, null, null, null);
                     logger.debug("Created namespaced secret={}", secret.getMetadata().getName());
@@ -279,11 +412,17 @@ public class K8sResourceUtils {
                     logger.debug("Replaced namespaced secret={}", secret.getMetadata().getName());
                     return secret2;
                 }
-        );
+            );
+        });
     }
 
     public Single<V1Secret> readOrCreateNamespacedSecret(V1ObjectMeta secretObjectMeta, final Supplier<V1Secret> secretSupplier) throws ApiException {
-        return readOrCreateResource(
+        return Single.defer(() -> {
+            final V1Secret cached = secretCache.isSynced() ? secretCache.get(new Key(secretObjectMeta)) : null;
+            if (cached != null) {
+                return Single.just(cached);
+            }
+            return readOrCreateResource(
                 () -> {
                         V1Secret secret2 = coreApi.readNamespacedSecret(secretObjectMeta.getName(), secretObjectMeta.getNamespace(), null, null, null);
                         logger.debug("Replaced namespaced secret={} in namespace={}", secret2.getMetadata().getName(), secret2.getMetadata().getNamespace());
@@ -294,7 +433,8 @@ public class K8sResourceUtils {
                     logger.debug("Created namespaced secret={}", secret2.getMetadata().getName());
                     return secret2;
                 }
-        );
+            );
+        });
     }
 
     public Completable deleteService(String namespace, @Nullable final String fieldSelector, @Nullable final String labelSelector) {
@@ -527,6 +667,49 @@ public class K8sResourceUtils {
         return new ResourceListIterable<>(new V1StatefulSetPage(null));
     }
 
+    /**
+     * List the elassandra pods having the given labels, from the informer cache when synced or from the k8s api otherwise.
+     */
+    public Iterable<V1Pod> listCachedNamespacedPods(final String namespace, final Map<String, String> labels) throws ApiException {
+        if (elassandraPodCache.isSynced()) {
+            return filterByLabels(elassandraPodCache.values(), V1Pod::getMetadata, namespace, labels);
+        }
+        return listNamespacedPods(namespace, null, OperatorLabels.toSelector(labels));
+    }
+
+    /**
+     * Read an elassandra pod by name, from the informer cache when synced or from the k8s api otherwise.
+     */
+    public Optional<V1Pod> readCachedElassandraPod(final String namespace, final String podName) throws ApiException {
+        if (elassandraPodCache.isSynced()) {
+            return Optional.ofNullable(elassandraPodCache.get(new Key(podName, namespace)));
+        }
+        final Iterator<V1Pod> pods = listNamespacedPods(namespace, null, OperatorLabels.toSelector(ImmutableMap.of(OperatorLabels.POD, podName))).iterator();
+        return pods.hasNext() ? Optional.of(pods.next()) : Optional.empty();
+    }
+
+    /**
+     * List the statefulsets of a datacenter, from the datacenter index of the informer cache when synced or from the k8s api otherwise.
+     */
+    public Iterable<V1StatefulSet> listCachedDataCenterStatefulSets(final DataCenter dataCenter) throws ApiException {
+        if (statefulsetCache.isSynced()) {
+            return statefulsetCache.listByDataCenter(dataCenter.getMetadata().getNamespace(),
+                    dataCenter.getSpec().getClusterName(), dataCenter.getSpec().getDatacenterName());
+        }
+        return listNamespacedStatefulSets(dataCenter.getMetadata().getNamespace(), null, OperatorLabels.toSelector(OperatorLabels.datacenter(dataCenter)));
+    }
+
+    private static <T> List<T> filterByLabels(final Collection<T> resources, final Function<T, V1ObjectMeta> metadata,
+                                              final String namespace, final Map<String, String> labels) {
+        return resources.stream()
+                .filter(resource -> {
+                    final V1ObjectMeta meta = metadata.apply(resource);
+                    return Objects.equals(namespace, meta.getNamespace()) &&
+                            meta.getLabels() != null &&
+                            meta.getLabels().entrySet().containsAll(labels.entrySet());
+                })
+                .collect(Collectors.toList());
+    }
 
     public Iterable<V1ConfigMap> listNamespacedConfigMaps(final String namespace, @Nullable final String fieldSelector, @Nullable final String labelSelector) throws ApiException {
         class V1ConfigMapPage implements ResourceListIterable.Page<V1ConfigMap> {
@@ -746,13 +929,49 @@ public class K8sResourceUtils {
         });
     }
 
+    /**
+     * Read a datacenter from the cache when it includes our own writes, or from the k8s api otherwise.
+     * The returned datacenter is a copy, it can be modified.
+     */
+    public Single<DataCenter> readCachedDatacenter(final Key key) throws ApiException {
+        return Single.defer(() -> {
+            final DataCenter cached = dataCenterCache.getIfFresh(key);
+            if (cached == null) {
+                logger.trace("datacenter={} in namespace={} not in cache or stale, reading from api", key.name, key.namespace);
+                return readDatacenter(key)
+                        .doOnSuccess(dc -> dataCenterCache.onRead(key, dc.getMetadata().getResourceVersion()));
+            }
+            final Gson gson = customObjectsApi.getApiClient().getJSON().getGson();
+            return Single.just(gson.fromJson(gson.toJsonTree(cached), DataCenter.class));
+        });
+    }
+
     public Single<Object> updateDataCenterStatus(final DataCenter dc) throws ApiException {
         return Single.fromCallable(() -> {
-                return customObjectsApi.replaceNamespacedCustomObjectStatus("stable.strapdata.com", "v1",
+                final Object response = customObjectsApi.replaceNamespacedCustomObjectStatus("stable.strapdata.com", "v1",
                         dc.getMetadata().getNamespace(), "elassandradatacenters", dc.getMetadata().getName(), dc);
+                // read-your-writes, the cached datacenter is not used until it includes this update
+                final String resourceVersion = getResourceVersion(response);
+                if (resourceVersion != null) {
+                    dc.getMetadata().setResourceVersion(resourceVersion);
+                    dataCenterCache.onWrite(new Key(dc.getMetadata()), resourceVersion);
+                }
+                return response;
         });
     }
 
+    // extract the resource version from an untyped custom object
+    private static String getResourceVersion(final Object resource) {
+        if (resource instanceof Map) {
+            final Object metadata = ((Map<?, ?>) resource).get("metadata");
+            if (metadata instanceof Map) {
+                final Object resourceVersion = ((Map<?, ?>) metadata).get("resourceVersion");
+                return (resourceVersion == null) ? null : resourceVersion.toString();
+            }
+        }
+        return null;
+    }
+
     public Completable updateTaskStatus(Task task, TaskPhase phase) throws ApiException {
         task.getStatus().setPhase(phase);
         return updateTaskStatus(task);
@@ -32,10 +32,19 @@ public final class OperatorLabels {
     // when the config map change
     public static final String CONFIGMAP_FINGERPRINT = labelPrefix + "configmap-fingerprint";
     
+    // this annotation is used to store a hash of the desired state of a resource, so that unchanged resources are not rewritten
+    public static final String DESIRED_STATE_HASH = labelPrefix + "desired-state-hash";
+    
     public static final Map<String, String> MANAGED = ImmutableMap.of(
             "app.kubernetes.io/managed-by", "elassandra-operator"
     );
 
+    // select all the elassandra pods managed by the operator
+    public static final Map<String, String> ELASSANDRA_PODS_SELECTOR = ImmutableMap.<String, String>builder()
+            .putAll(MANAGED)
+            .put(APP, "elassandra")
+            .build();
+
     private OperatorLabels() {}
     
     public static Map<String, String> cluster(String clusterName) {
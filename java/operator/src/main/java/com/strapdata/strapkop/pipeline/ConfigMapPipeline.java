@@ -0,0 +1,84 @@
+package com.strapdata.strapkop.pipeline;
+
+import com.squareup.okhttp.Call;
+import com.strapdata.model.Key;
+import com.strapdata.strapkop.OperatorConfig;
+import com.strapdata.strapkop.cache.ConfigMapCache;
+import io.kubernetes.client.ApiException;
+import io.kubernetes.client.apis.CoreV1Api;
+import io.kubernetes.client.models.V1ListMeta;
+import io.kubernetes.client.models.V1ObjectMeta;
+import io.kubernetes.client.models.V1ConfigMap;
+import io.kubernetes.client.models.V1ConfigMapList;
+import io.micronaut.context.annotation.Context;
+import io.micronaut.context.annotation.Infrastructure;
+
+import java.lang.reflect.Type;
+import java.util.Collection;
+
+/**
+ * Watch the configmaps of the operator namespace to maintain the {@link ConfigMapCache}, so that unchanged configmaps
+ * are not rewritten and user configmaps are not read on each reconciliation. User configmaps are not labeled,
+ * so configmaps are not filtered by label.
+ */
+@Context
+@Infrastructure
+public class ConfigMapPipeline extends K8sWatchPipeline<V1ConfigMap, V1ConfigMapList> {
+
+    public ConfigMapPipeline(K8sInformerRegistry informerRegistry, CoreV1Api coreV1Api, OperatorConfig config, ConfigMapCache cache) {
+        super(informerRegistry, new ConfigMapAdapter(coreV1Api, config), cache);
+    }
+
+    public static class ConfigMapAdapter extends K8sWatchResourceAdapter<V1ConfigMap, V1ConfigMapList> {
+        private final OperatorConfig config;
+        private final CoreV1Api coreV1Api;
+
+        public ConfigMapAdapter(CoreV1Api coreV1Api, OperatorConfig config) {
+            this.coreV1Api = coreV1Api;
+            this.config = config;
+        }
+
+        @Override
+        public Type getResourceType() {
+            return V1ConfigMap.class;
+        }
+
+        @Override
+        public Type getResourceListType() {
+            return V1ConfigMapList.class;
+        }
+
+        @Override
+        public Call createListApiCall(boolean watch, String resourceVersion) throws ApiException {
+            return coreV1Api.listNamespacedConfigMapCall(getNamespace(), false, null, null,
+                    null, getLabelSelector(), null,
+                    resourceVersion, null, watch, null, null
+            );
+        }
+
+        @Override
+        public String getNamespace() {
+            return config.getNamespace();
+        }
+
+        @Override
+        public Key getKey(V1ConfigMap resource) {
+            return new Key(resource.getMetadata());
+        }
+
+        @Override
+        public V1ObjectMeta getMetadata(V1ConfigMap resource) {
+            return resource.getMetadata();
+        }
+
+        @Override
+        public Collection<? extends V1ConfigMap> getListItems(V1ConfigMapList list) {
+            return list.getItems();
+        }
+
+        @Override
+        public V1ListMeta getListMetadata(V1ConfigMapList list) {
+            return list.getMetadata();
+        }
+    }
+}
@@ -6,7 +6,6 @@ import com.strapdata.model.k8s.cassandra.DataCenter;
 import com.strapdata.model.k8s.cassandra.DataCenterList;
 import com.strapdata.strapkop.OperatorConfig;
 import com.strapdata.strapkop.cache.DataCenterCache;
-import io.kubernetes.client.ApiClient;
 import io.kubernetes.client.ApiException;
 import io.kubernetes.client.apis.CustomObjectsApi;
 import io.kubernetes.client.models.V1ListMeta;
@@ -16,7 +15,6 @@ import io.micronaut.context.annotation.Infrastructure;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import javax.inject.Named;
 import java.lang.reflect.Type;
 import java.util.Collection;
 
@@ -26,8 +24,8 @@ public class DataCenterPipeline extends K8sWatchPipeline<DataCenter, DataCenterL
 
     private final Logger logger = LoggerFactory.getLogger(DataCenterPipeline.class);
     
-    public DataCenterPipeline(@Named("apiClient") ApiClient apiClient, DataCenterCache cache, CustomObjectsApi customObjectsApi, OperatorConfig config) {
-        super(apiClient, new DataCenterAdapter(customObjectsApi, config), cache);
+    public DataCenterPipeline(K8sInformerRegistry informerRegistry, DataCenterCache cache, CustomObjectsApi customObjectsApi, OperatorConfig config) {
+        super(informerRegistry, new DataCenterAdapter(customObjectsApi, config), cache);
     }
     
     public static class DataCenterAdapter extends K8sWatchResourceAdapter<DataCenter, DataCenterList> {
@@ -53,9 +51,14 @@ public class DataCenterPipeline extends K8sWatchPipeline<DataCenter, DataCenterL
         @Override
         public Call createListApiCall(boolean watch, String resourceVersion) throws ApiException {
             return customObjectsApi.listNamespacedCustomObjectCall("stable.strapdata.com", "v1",
-                    config.getNamespace(), "elassandradatacenters", null, null,
+                    getNamespace(), "elassandradatacenters", null, null,
                     resourceVersion, watch, null, null);
         }
+
+        @Override
+        public String getNamespace() {
+            return config.getNamespace();
+        }
   
         @Override
         public Key getKey(DataCenter resource) {
@@ -76,5 +79,11 @@ public class DataCenterPipeline extends K8sWatchPipeline<DataCenter, DataCenterL
         public V1ListMeta getListMetadata(DataCenterList list) {
             return list.getMetadata();
         }
+
+        // status is only written by the operator, do not reconcile on our own status updates
+        @Override
+        public boolean skipStatusOnlyEvents() {
+            return true;
+        }
     }
 }
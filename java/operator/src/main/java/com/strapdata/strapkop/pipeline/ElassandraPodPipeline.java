@@ -0,0 +1,88 @@
+package com.strapdata.strapkop.pipeline;
+
+import com.squareup.okhttp.Call;
+import com.strapdata.model.Key;
+import com.strapdata.strapkop.OperatorConfig;
+import com.strapdata.strapkop.cache.ElassandraPodCache;
+import com.strapdata.strapkop.k8s.OperatorLabels;
+import io.kubernetes.client.ApiException;
+import io.kubernetes.client.apis.CoreV1Api;
+import io.kubernetes.client.models.V1ListMeta;
+import io.kubernetes.client.models.V1ObjectMeta;
+import io.kubernetes.client.models.V1Pod;
+import io.kubernetes.client.models.V1PodList;
+import io.micronaut.context.annotation.Context;
+import io.micronaut.context.annotation.Infrastructure;
+
+import java.lang.reflect.Type;
+import java.util.Collection;
+
+/**
+ * Watch the elassandra pods to maintain the {@link ElassandraPodCache} read by reconcilers and controllers.
+ */
+@Context
+@Infrastructure
+public class ElassandraPodPipeline extends K8sWatchPipeline<V1Pod, V1PodList> {
+
+    public ElassandraPodPipeline(K8sInformerRegistry informerRegistry, CoreV1Api coreV1Api, OperatorConfig config, ElassandraPodCache cache) {
+        super(informerRegistry, new ElassandraPodAdapter(coreV1Api, config), cache);
+    }
+
+    public static class ElassandraPodAdapter extends K8sWatchResourceAdapter<V1Pod, V1PodList> {
+        private final OperatorConfig config;
+        private final CoreV1Api coreV1Api;
+
+        public ElassandraPodAdapter(CoreV1Api coreV1Api, OperatorConfig config) {
+            this.coreV1Api = coreV1Api;
+            this.config = config;
+        }
+
+        @Override
+        public Type getResourceType() {
+            return V1Pod.class;
+        }
+
+        @Override
+        public Type getResourceListType() {
+            return V1PodList.class;
+        }
+
+        @Override
+        public Call createListApiCall(boolean watch, String resourceVersion) throws ApiException {
+            return coreV1Api.listNamespacedPodCall(getNamespace(), false, null, null,
+                    null, getLabelSelector(), null,
+                    resourceVersion, null, watch, null, null
+            );
+        }
+
+        @Override
+        public String getNamespace() {
+            return config.getNamespace();
+        }
+
+        @Override
+        public String getLabelSelector() {
+            return OperatorLabels.toSelector(OperatorLabels.ELASSANDRA_PODS_SELECTOR);
+        }
+
+        @Override
+        public Key getKey(V1Pod resource) {
+            return new Key(resource.getMetadata());
+        }
+
+        @Override
+        public V1ObjectMeta getMetadata(V1Pod resource) {
+            return resource.getMetadata();
+        }
+
+        @Override
+        public Collection<? extends V1Pod> getListItems(V1PodList list) {
+            return list.getItems();
+        }
+
+        @Override
+        public V1ListMeta getListMetadata(V1PodList list) {
+            return list.getMetadata();
+        }
+    }
+}
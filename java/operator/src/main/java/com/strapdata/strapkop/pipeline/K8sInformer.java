@@ -0,0 +1,81 @@
+package com.strapdata.strapkop.pipeline;
+
+import com.strapdata.model.Key;
+import com.strapdata.strapkop.cache.Cache;
+import com.strapdata.strapkop.event.EventSource;
+import com.strapdata.strapkop.event.K8sWatchEvent;
+import com.strapdata.strapkop.event.K8sWatchEventSource;
+import io.kubernetes.client.ApiClient;
+import io.reactivex.Observable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A single list+watch of a kubernetes resource kind, maintaining a local store and shared by all its subscribers.
+ * The store is updated once per event, before the event is dispatched to subscribers.
+ *
+ * @param <ResourceT>
+ * @param <ResourceListT>
+ */
+public class K8sInformer<ResourceT, ResourceListT> implements EventSource<K8sWatchEvent<ResourceT>> {
+
+    private final Logger logger = LoggerFactory.getLogger(K8sInformer.class);
+
+    private final K8sWatchResourceAdapter<ResourceT, ResourceListT> adapter;
+    private final Cache<Key, ResourceT> store;
+    private final Observable<K8sWatchEvent<ResourceT>> observable;
+
+    K8sInformer(final ApiClient apiClient, final K8sWatchResourceAdapter<ResourceT, ResourceListT> adapter, final Cache<Key, ResourceT> store) {
+        this.adapter = adapter;
+        this.store = store;
+        final K8sWatchEventSource<ResourceT, ResourceListT> source = new K8sWatchEventSource<>(apiClient, adapter, store);
+        // the underlying watch is (re)opened by the first subscriber, and closed when the last one leaves
+        this.observable = Observable.defer(source::createObservable)
+                .doOnNext(this::updateStore)
+                .share();
+    }
+
+    /**
+     * @return the shared hot observable, subscribers joining a running watch only receive next events.
+     */
+    @Override
+    public Observable<K8sWatchEvent<ResourceT>> createObservable() {
+        return observable;
+    }
+
+    public Cache<Key, ResourceT> getStore() {
+        return store;
+    }
+
+    public K8sWatchResourceAdapter<ResourceT, ResourceListT> getAdapter() {
+        return adapter;
+    }
+
+    private void updateStore(K8sWatchEvent<ResourceT> event) {
+        final Key key = adapter.getKey(event.getResource());
+
+        switch (event.getType()) {
+            case MODIFIED:
+                final ResourceT previous = store.put(key, event.getResource());
+                event.setStatusOnly(previous != null && isSameGeneration(previous, event.getResource()));
+                break;
+            case ADDED:
+            case INITIAL:
+                store.put(key, event.getResource());
+                break;
+            case DELETED:
+                store.remove(key);
+                break;
+            case ERROR:
+                break;
+        }
+
+        logger.trace("store={}", store);
+    }
+
+    // metadata.generation is only incremented on spec changes (when the resource has a status subresource)
+    private boolean isSameGeneration(ResourceT previous, ResourceT current) {
+        final Long generation = adapter.getMetadata(current).getGeneration();
+        return generation != null && generation.equals(adapter.getMetadata(previous).getGeneration());
+    }
+}
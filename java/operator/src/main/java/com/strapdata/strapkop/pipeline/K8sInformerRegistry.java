@@ -0,0 +1,74 @@
+package com.strapdata.strapkop.pipeline;
+
+import com.squareup.okhttp.Request;
+import com.strapdata.model.Key;
+import com.strapdata.strapkop.cache.Cache;
+import io.kubernetes.client.ApiClient;
+import io.micronaut.context.annotation.Infrastructure;
+import lombok.Data;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Registry of the shared informers, to open only one list+watch per (kind, namespace, label selector)
+ * whatever the number of pipelines and readers of that resource.
+ */
+@Singleton
+@Infrastructure
+public class K8sInformerRegistry {
+
+    private final Logger logger = LoggerFactory.getLogger(K8sInformerRegistry.class);
+
+    private final ApiClient apiClient;
+
+    private final Map<InformerKey, K8sInformer<?, ?>> informers = new HashMap<>();
+
+    public K8sInformerRegistry(@Named("apiClient") ApiClient apiClient) {
+        this.apiClient = apiClient;
+
+        // ask for watch bookmarks, so that an idle watch resumes from a recent resource version instead of relisting
+        apiClient.getHttpClient().interceptors().add(chain -> {
+            final Request request = chain.request();
+            if (!"true".equals(request.httpUrl().queryParameter("watch"))) {
+                return chain.proceed(request);
+            }
+            return chain.proceed(request.newBuilder()
+                    .url(request.httpUrl().newBuilder().addQueryParameter("allowWatchBookmarks", "true").build())
+                    .build());
+        });
+    }
+
+    /**
+     * Get or create the informer of a resource kind.
+     *
+     * @param adapter the resource adapter, used to list and watch when creating the informer
+     * @param store the store of the informer, must be the same for all callers
+     * @return the shared informer
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized <ResourceT, ResourceListT> K8sInformer<ResourceT, ResourceListT> informer(
+            final K8sWatchResourceAdapter<ResourceT, ResourceListT> adapter, final Cache<Key, ResourceT> store) {
+        final InformerKey key = new InformerKey(adapter.getResourceType().getTypeName(), adapter.getNamespace(), adapter.getLabelSelector());
+        K8sInformer<ResourceT, ResourceListT> informer = (K8sInformer<ResourceT, ResourceListT>) informers.get(key);
+        if (informer == null) {
+            logger.debug("creating informer for {}", key);
+            informer = new K8sInformer<>(apiClient, adapter, store);
+            informers.put(key, informer);
+        } else if (informer.getStore() != store) {
+            throw new IllegalArgumentException("informer " + key + " already registered with another store");
+        }
+        return informer;
+    }
+
+    @Data
+    private static class InformerKey {
+        final String kind;
+        final String namespace;
+        final String labelSelector;
+    }
+}
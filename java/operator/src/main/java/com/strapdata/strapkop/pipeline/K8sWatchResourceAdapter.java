@@ -20,4 +20,25 @@ public abstract class K8sWatchResourceAdapter<ResourceT, ResourceListT> {
     public abstract V1ObjectMeta getMetadata(final ResourceT resource);
     public abstract Collection<? extends ResourceT> getListItems(final ResourceListT list);
     public abstract V1ListMeta getListMetadata(final ResourceListT list);
+
+    /**
+     * @return the watched namespace, or null for cluster scoped resources.
+     */
+    public String getNamespace() {
+        return null;
+    }
+
+    /**
+     * @return the label selector of the watch, or null to watch all resources.
+     */
+    public String getLabelSelector() {
+        return null;
+    }
+
+    /**
+     * @return true to drop MODIFIED events that do not change the resource generation, such as the operator status writes.
+     */
+    public boolean skipStatusOnlyEvents() {
+        return false;
+    }
 }
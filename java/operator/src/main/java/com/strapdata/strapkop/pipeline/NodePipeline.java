@@ -3,13 +3,14 @@ package com.strapdata.strapkop.pipeline;
 import com.squareup.okhttp.Call;
 import com.strapdata.model.Key;
 import com.strapdata.strapkop.cache.NodeCache;
-import io.kubernetes.client.ApiClient;
 import io.kubernetes.client.ApiException;
 import io.kubernetes.client.apis.CoreV1Api;
 import io.kubernetes.client.models.V1ListMeta;
 import io.kubernetes.client.models.V1Node;
 import io.kubernetes.client.models.V1NodeList;
 import io.kubernetes.client.models.V1ObjectMeta;
+import io.micronaut.context.annotation.Context;
+import io.micronaut.context.annotation.Infrastructure;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -17,14 +18,14 @@ import javax.inject.Named;
 import java.lang.reflect.Type;
 import java.util.Collection;
 
-//@Context
-//@Infrastructure
+@Context
+@Infrastructure
 public class NodePipeline extends K8sWatchPipeline<V1Node, V1NodeList> {
 
     private final Logger logger = LoggerFactory.getLogger(NodePipeline.class);
 
-    public NodePipeline(ApiClient apiClient, CoreV1Api coreV1Api, NodeCache cache) {
-        super(apiClient, new NodeAdapter(coreV1Api), cache);
+    public NodePipeline(K8sInformerRegistry informerRegistry, CoreV1Api coreV1Api, NodeCache cache) {
+        super(informerRegistry, new NodeAdapter(coreV1Api), cache);
     }
     
     private static class NodeAdapter extends K8sWatchResourceAdapter<V1Node, V1NodeList> {
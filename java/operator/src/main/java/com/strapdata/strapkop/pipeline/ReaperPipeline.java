@@ -7,7 +7,6 @@ import com.strapdata.strapkop.cache.Cache;
 import com.strapdata.strapkop.cache.PodCache;
 import com.strapdata.strapkop.k8s.OperatorLabels;
 import com.strapdata.strapkop.k8s.ReaperLabels;
-import io.kubernetes.client.ApiClient;
 import io.kubernetes.client.ApiException;
 import io.kubernetes.client.apis.CoreV1Api;
 import io.kubernetes.client.models.V1ListMeta;
@@ -17,7 +16,6 @@ import io.kubernetes.client.models.V1PodList;
 import io.micronaut.context.annotation.Context;
 import io.micronaut.context.annotation.Infrastructure;
 
-import javax.inject.Named;
 import java.lang.reflect.Type;
 import java.util.Collection;
 
@@ -25,8 +23,8 @@ import java.util.Collection;
 @Infrastructure
 public class ReaperPipeline extends K8sWatchPipeline<V1Pod, V1PodList>  {
 
-    public ReaperPipeline(@Named("apiClient") ApiClient apiClient, CoreV1Api coreV1Api, OperatorConfig config, PodCache cache) {
-        super(apiClient, new ReaperAdapter(coreV1Api, config), cache);
+    public ReaperPipeline(K8sInformerRegistry informerRegistry, CoreV1Api coreV1Api, OperatorConfig config, PodCache cache) {
+        super(informerRegistry, new ReaperAdapter(coreV1Api, config), cache);
     }
 
     public static class ReaperAdapter extends K8sWatchResourceAdapter<V1Pod, V1PodList> {
@@ -50,12 +48,22 @@ public class ReaperPipeline extends K8sWatchPipeline<V1Pod, V1PodList>  {
 
         @Override
         public Call createListApiCall(boolean watch, String resourceVersion) throws ApiException {
-            return coreV1Api.listNamespacedPodCall( config.getNamespace(), false, null, null,
-                    null, OperatorLabels.toSelector(ReaperLabels.PODS_SELECTOR), null,
-                    null, null, watch, null, null
+            return coreV1Api.listNamespacedPodCall( getNamespace(), false, null, null,
+                    null, getLabelSelector(), null,
+                    resourceVersion, null, watch, null, null
             );
         }
 
+        @Override
+        public String getNamespace() {
+            return config.getNamespace();
+        }
+
+        @Override
+        public String getLabelSelector() {
+            return OperatorLabels.toSelector(ReaperLabels.PODS_SELECTOR);
+        }
+
         @Override
         public Key getKey(V1Pod resource) {
             return new Key(resource.getMetadata());
@@ -0,0 +1,88 @@
+package com.strapdata.strapkop.pipeline;
+
+import com.squareup.okhttp.Call;
+import com.strapdata.model.Key;
+import com.strapdata.strapkop.OperatorConfig;
+import com.strapdata.strapkop.cache.SecretCache;
+import com.strapdata.strapkop.k8s.OperatorLabels;
+import io.kubernetes.client.ApiException;
+import io.kubernetes.client.apis.CoreV1Api;
+import io.kubernetes.client.models.V1ListMeta;
+import io.kubernetes.client.models.V1ObjectMeta;
+import io.kubernetes.client.models.V1Secret;
+import io.kubernetes.client.models.V1SecretList;
+import io.micronaut.context.annotation.Context;
+import io.micronaut.context.annotation.Infrastructure;
+
+import java.lang.reflect.Type;
+import java.util.Collection;
+
+/**
+ * Watch the secrets managed by the operator to maintain the {@link SecretCache}, so that unchanged secrets are not rewritten.
+ */
+@Context
+@Infrastructure
+public class SecretPipeline extends K8sWatchPipeline<V1Secret, V1SecretList> {
+
+    public SecretPipeline(K8sInformerRegistry informerRegistry, CoreV1Api coreV1Api, OperatorConfig config, SecretCache cache) {
+        super(informerRegistry, new SecretAdapter(coreV1Api, config), cache);
+    }
+
+    public static class SecretAdapter extends K8sWatchResourceAdapter<V1Secret, V1SecretList> {
+        private final OperatorConfig config;
+        private final CoreV1Api coreV1Api;
+
+        public SecretAdapter(CoreV1Api coreV1Api, OperatorConfig config) {
+            this.coreV1Api = coreV1Api;
+            this.config = config;
+        }
+
+        @Override
+        public Type getResourceType() {
+            return V1Secret.class;
+        }
+
+        @Override
+        public Type getResourceListType() {
+            return V1SecretList.class;
+        }
+
+        @Override
+        public Call createListApiCall(boolean watch, String resourceVersion) throws ApiException {
+            return coreV1Api.listNamespacedSecretCall(getNamespace(), false, null, null,
+                    null, getLabelSelector(), null,
+                    resourceVersion, null, watch, null, null
+            );
+        }
+
+        @Override
+        public String getNamespace() {
+            return config.getNamespace();
+        }
+
+        @Override
+        public String getLabelSelector() {
+            return OperatorLabels.toSelector(OperatorLabels.MANAGED);
+        }
+
+        @Override
+        public Key getKey(V1Secret resource) {
+            return new Key(resource.getMetadata());
+        }
+
+        @Override
+        public V1ObjectMeta getMetadata(V1Secret resource) {
+            return resource.getMetadata();
+        }
+
+        @Override
+        public Collection<? extends V1Secret> getListItems(V1SecretList list) {
+            return list.getItems();
+        }
+
+        @Override
+        public V1ListMeta getListMetadata(V1SecretList list) {
+            return list.getMetadata();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.strapdata.strapkop.pipeline;
+
+import com.squareup.okhttp.Call;
+import com.strapdata.model.Key;
+import com.strapdata.strapkop.OperatorConfig;
+import com.strapdata.strapkop.cache.ServiceCache;
+import com.strapdata.strapkop.k8s.OperatorLabels;
+import io.kubernetes.client.ApiException;
+import io.kubernetes.client.apis.CoreV1Api;
+import io.kubernetes.client.models.V1ListMeta;
+import io.kubernetes.client.models.V1ObjectMeta;
+import io.kubernetes.client.models.V1Service;
+import io.kubernetes.client.models.V1ServiceList;
+import io.micronaut.context.annotation.Context;
+import io.micronaut.context.annotation.Infrastructure;
+
+import java.lang.reflect.Type;
+import java.util.Collection;
+
+/**
+ * Watch the services managed by the operator to maintain the {@link ServiceCache}, so that unchanged services are not rewritten.
+ */
+@Context
+@Infrastructure
+public class ServicePipeline extends K8sWatchPipeline<V1Service, V1ServiceList> {
+
+    public ServicePipeline(K8sInformerRegistry informerRegistry, CoreV1Api coreV1Api, OperatorConfig config, ServiceCache cache) {
+        super(informerRegistry, new ServiceAdapter(coreV1Api, config), cache);
+    }
+
+    public static class ServiceAdapter extends K8sWatchResourceAdapter<V1Service, V1ServiceList> {
+        private final OperatorConfig config;
+        private final CoreV1Api coreV1Api;
+
+        public ServiceAdapter(CoreV1Api coreV1Api, OperatorConfig config) {
+            this.coreV1Api = coreV1Api;
+            this.config = config;
+        }
+
+        @Override
+        public Type getResourceType() {
+            return V1Service.class;
+        }
+
+        @Override
+        public Type getResourceListType() {
+            return V1ServiceList.class;
+        }
+
+        @Override
+        public Call createListApiCall(boolean watch, String resourceVersion) throws ApiException {
+            return coreV1Api.listNamespacedServiceCall(getNamespace(), false, null, null,
+                    null, getLabelSelector(), null,
+                    resourceVersion, null, watch, null, null
+            );
+        }
+
+        @Override
+        public String getNamespace() {
+            return config.getNamespace();
+        }
+
+        @Override
+        public String getLabelSelector() {
+            return OperatorLabels.toSelector(OperatorLabels.MANAGED);
+        }
+
+        @Override
+        public Key getKey(V1Service resource) {
+            return new Key(resource.getMetadata());
+        }
+
+        @Override
+        public V1ObjectMeta getMetadata(V1Service resource) {
+            return resource.getMetadata();
+        }
+
+        @Override
+        public Collection<? extends V1Service> getListItems(V1ServiceList list) {
+            return list.getItems();
+        }
+
+        @Override
+        public V1ListMeta getListMetadata(V1ServiceList list) {
+            return list.getMetadata();
+        }
+    }
+}
@@ -5,7 +5,6 @@ import com.strapdata.model.Key;
 import com.strapdata.strapkop.OperatorConfig;
 import com.strapdata.strapkop.cache.StatefulsetCache;
 import com.strapdata.strapkop.k8s.OperatorLabels;
-import io.kubernetes.client.ApiClient;
 import io.kubernetes.client.ApiException;
 import io.kubernetes.client.apis.AppsV1Api;
 import io.kubernetes.client.models.V1ListMeta;
@@ -17,7 +16,6 @@ import io.micronaut.context.annotation.Infrastructure;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import javax.inject.Named;
 import java.lang.reflect.Type;
 import java.util.Collection;
 
@@ -27,8 +25,8 @@ public class StatefulsetPipeline extends K8sWatchPipeline<V1StatefulSet, V1State
 
     private final Logger logger = LoggerFactory.getLogger(StatefulsetPipeline.class);
     
-    public StatefulsetPipeline(@Named("apiClient")  ApiClient apiClient, StatefulsetCache cache, AppsV1Api appsV1Api, OperatorConfig config) {
-        super(apiClient, new StatefulsetAdapter(appsV1Api, config), cache);
+    public StatefulsetPipeline(K8sInformerRegistry informerRegistry, StatefulsetCache cache, AppsV1Api appsV1Api, OperatorConfig config) {
+        super(informerRegistry, new StatefulsetAdapter(appsV1Api, config), cache);
     }
     
     private static class StatefulsetAdapter extends K8sWatchResourceAdapter<V1StatefulSet, V1StatefulSetList> {
@@ -53,11 +51,21 @@ public class StatefulsetPipeline extends K8sWatchPipeline<V1StatefulSet, V1State
         
         @Override
         public Call createListApiCall(boolean watch, String resourceVersion) throws ApiException {
-            return appsV1Api.listNamespacedStatefulSetCall(config.getNamespace(),
+            return appsV1Api.listNamespacedStatefulSetCall(getNamespace(),
                     null, null, null,
-                    null, OperatorLabels.toSelector(OperatorLabels.MANAGED),
+                    null, getLabelSelector(),
                     null, resourceVersion, null, watch, null, null);
         }
+
+        @Override
+        public String getNamespace() {
+            return config.getNamespace();
+        }
+
+        @Override
+        public String getLabelSelector() {
+            return OperatorLabels.toSelector(OperatorLabels.MANAGED);
+        }
         
         @Override
         public Key getKey(V1StatefulSet resource) {
@@ -6,7 +6,6 @@ import com.strapdata.model.k8s.task.Task;
 import com.strapdata.model.k8s.task.TaskList;
 import com.strapdata.strapkop.OperatorConfig;
 import com.strapdata.strapkop.cache.TaskCache;
-import io.kubernetes.client.ApiClient;
 import io.kubernetes.client.ApiException;
 import io.kubernetes.client.apis.CustomObjectsApi;
 import io.kubernetes.client.models.V1ListMeta;
@@ -16,7 +15,6 @@ import io.micronaut.context.annotation.Infrastructure;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import javax.inject.Named;
 import java.lang.reflect.Type;
 import java.util.Collection;
 
@@ -26,8 +24,8 @@ public class TaskPipeline extends K8sWatchPipeline<Task, TaskList> {
 
     private final Logger logger = LoggerFactory.getLogger(TaskPipeline.class);
     
-    public TaskPipeline(@Named("apiClient") ApiClient apiClient, TaskCache cache, CustomObjectsApi customObjectsApi, OperatorConfig config) {
-        super(apiClient, new TaskAdapter(customObjectsApi, config), cache);
+    public TaskPipeline(K8sInformerRegistry informerRegistry, TaskCache cache, CustomObjectsApi customObjectsApi, OperatorConfig config) {
+        super(informerRegistry, new TaskAdapter(customObjectsApi, config), cache);
     }
     
     public static class TaskAdapter extends K8sWatchResourceAdapter<Task, TaskList> {
@@ -53,9 +51,14 @@ public class TaskPipeline extends K8sWatchPipeline<Task, TaskList> {
         @Override
         public Call createListApiCall(boolean watch, String resourceVersion) throws ApiException {
             return customObjectsApi.listNamespacedCustomObjectCall("stable.strapdata.com", "v1",
-                    config.getNamespace(), "elassandratasks", null, null,
+                    getNamespace(), "elassandratasks", null, null,
                     resourceVersion, watch, null, null);
         }
+
+        @Override
+        public String getNamespace() {
+            return config.getNamespace();
+        }
   
         @Override
         public Key getKey(Task resource) {
@@ -1,84 +1,294 @@
 package com.strapdata.strapkop.pipeline;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.strapdata.model.ClusterKey;
+import com.strapdata.strapkop.OperatorConfig;
 import io.micronaut.context.annotation.Infrastructure;
 import io.reactivex.Completable;
-import io.reactivex.disposables.Disposable;
-import io.reactivex.schedulers.Schedulers;
-import io.reactivex.subjects.BehaviorSubject;
-import io.reactivex.subjects.Subject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
 import javax.inject.Singleton;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Per elassandra cluster work queue to ensure operations are executed sequentially over a single cluster, to prevent
  * bizarre scenario (e.g scaling down while doing a backup)
+ *
+ * Work submitted with a reconcile key is coalesced, like a controller-runtime workqueue :
+ * <ul>
+ *     <li>a key already pending (not started yet) is merged with the pending run,</li>
+ *     <li>a key submitted while it is running schedules exactly one follow-up run.</li>
+ * </ul>
+ * The latest submitted completable is the one executed, so submitted completables must be lazy (reading the
+ * resource state when subscribed).
+ *
+ * Cluster queues are executed by a bounded pool of reconcile workers. A worker runs one item of a cluster and then
+ * requeues the cluster at the tail of the pool queue, so that clusters are served in a round-robin fashion.
+ *
+ * A keyed item that fails is requeued after a delay given by the {@link WorkQueueRateLimiter}. Items submitted for
+ * that key while it is backing off are merged in the delayed retry, so a broken datacenter cannot hot-loop.
  */
 @Singleton
 @Infrastructure
 public class WorkQueue {
-    
+
     private static final Logger logger = LoggerFactory.getLogger(WorkQueue.class);
-    
-    private final Map<ClusterKey, Subject<Completable>> queues = new HashMap<>();
-    
+
+    private final Map<ClusterKey, ClusterQueue> queues = new HashMap<>();
+
+    private final ExecutorService executor;
+
+    private final WorkQueueRateLimiter rateLimiter;
+
+    // number of submitted items not yet started, all clusters included
+    private final AtomicInteger queueDepth = new AtomicInteger();
+
+    @Inject
+    public WorkQueue(final OperatorConfig config) {
+        this(config.getWorkQueue().getParallelism(), new WorkQueueRateLimiter(
+                config.getWorkQueue().getRetryBaseDelayMs(),
+                config.getWorkQueue().getRetryMaxDelayMs(),
+                config.getWorkQueue().getRetryRate(),
+                config.getWorkQueue().getRetryBurst()));
+    }
+
+    WorkQueue(final int parallelism, final WorkQueueRateLimiter rateLimiter) {
+        logger.info("starting workqueue with {} reconcile workers", parallelism);
+        this.executor = Executors.newFixedThreadPool(parallelism,
+                new ThreadFactoryBuilder().setNameFormat("reconcile-worker-%d").setDaemon(true).build());
+        this.rateLimiter = rateLimiter;
+    }
+
     /**
-     * Submit a task in the sub-queue associated with the cluster key, creating it if does not exist yet
+     * Submit a task in the sub-queue associated with the cluster key, creating it if does not exist yet.
+     * The task is never coalesced with other tasks.
      * @param key
      * @param completable
      */
-    public synchronized void submit(final ClusterKey key, final Completable completable) {
-        
-        Subject<Completable> queue = queues.get(key);
-        
+    public void submit(final ClusterKey key, final Completable completable) {
+        submit(key, new UnkeyedItem(), completable);
+    }
+
+    /**
+     * Submit a task in the sub-queue associated with the cluster key, coalescing it with any pending or running
+     * task having the same reconcile key.
+     * @param key the cluster key
+     * @param reconcileKey the coalescing key (e.g. the datacenter key)
+     * @param completable
+     */
+    public synchronized void submit(final ClusterKey key, final Object reconcileKey, final Completable completable) {
+
+        ClusterQueue queue = queues.get(key);
+
         if (queue == null) {
-            queue = createQueue(key);
+            logger.debug("creating workqueue for key {}", key);
+            queue = new ClusterQueue(key);
             queues.put(key, queue);
         }
-        
-        queue.onNext(completable);
+
+        queue.add(reconcileKey, completable);
     }
-    
-    private Subject<Completable> createQueue(final ClusterKey key) {
-        
-        logger.debug("creating workqueue for key {}", key);
-        
-        final Subject<Completable> queue = BehaviorSubject.<Completable>create()
-                .toSerialized(); // this make the subject thread safe (e.g can call onNext concurrently)
-        
-        Disposable disposable = queue.observeOn(Schedulers.io()).subscribeOn(Schedulers.io())
-                // doOnError will be called if an error occurs within the subject (which is unlikely)
-                .doOnError(throwable -> logger.error("error in work queue for cluster {}", key.getName(), throwable))
-                // re subscribe the the subject in case it fails (which is unlikely)
-                .retryWhen(errors -> errors.delay(1, TimeUnit.SECONDS))
-                .subscribe(completable -> {
-                    try {
-                        final Throwable e = completable.blockingGet();
-                        if (e != null) {
-                            throw e;
-                        }
-                    }
-                    catch (Throwable e) {
-                        logger.error("uncaught exception propagated to work queue for cluster {}", key.getName(), e);
-                    }
-                });
-        return queue;
+
+    /**
+     * Submit a keyed task after a delay, to poll a condition that no event will signal. The task is dropped if the
+     * cluster queue has been disposed in the meantime.
+     * @param key the cluster key
+     * @param reconcileKey the coalescing key (e.g. the datacenter key)
+     * @param completable
+     * @param delayMs
+     */
+    public void submitAfter(final ClusterKey key, final Object reconcileKey, final Completable completable, final long delayMs) {
+        Completable.timer(delayMs, TimeUnit.MILLISECONDS).subscribe(() -> {
+            synchronized (this) {
+                if (queues.containsKey(key)) {
+                    submit(key, reconcileKey, completable);
+                }
+            }
+        });
     }
-    
+
     /**
-     * Free the resource associated with the cluster queue
+     * Free the resource associated with the cluster queue, pending items are dropped.
      * @param key
      */
-    public void dispose(final ClusterKey key) {
-        final Subject<Completable> queue = queues.get(key);
+    public synchronized void dispose(final ClusterKey key) {
+        final ClusterQueue queue = queues.remove(key);
         if (queue != null) {
-            queues.remove(key);
-            queue.onComplete();
+            // the backoff of keys that will never succeed again must not be kept forever
+            for (Object reconcileKey : queue.backoff.keySet()) {
+                rateLimiter.forget(reconcileKey);
+            }
+            for (Object reconcileKey : queue.pending.keySet()) {
+                rateLimiter.forget(reconcileKey);
+            }
+            queueDepth.addAndGet(-queue.order.size());
+            queue.order.clear();
+            queue.pending.clear();
+            queue.dirty.clear();
+            queue.backoff.clear();
+        }
+    }
+
+    /**
+     * @return the number of submitted items waiting for a reconcile worker
+     */
+    public int getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    /**
+     * @return the number of submitted items waiting for a reconcile worker, by cluster
+     */
+    public synchronized Map<ClusterKey, Integer> getQueueDepthByCluster() {
+        final Map<ClusterKey, Integer> depths = new HashMap<>();
+        for (ClusterQueue queue : queues.values()) {
+            depths.put(queue.key, queue.order.size());
+        }
+        return depths;
+    }
+
+    @PreDestroy
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    // reconcile key of items that are never coalesced nor retried
+    private static final class UnkeyedItem {
+    }
+
+    private class ClusterQueue implements Runnable {
+
+        final ClusterKey key;
+
+        // reconcile keys in submission order
+        final Deque<Object> order = new ArrayDeque<>();
+        // completables waiting to be executed, by reconcile key
+        final Map<Object, Completable> pending = new HashMap<>();
+        // reconcile keys being executed
+        final Set<Object> running = new HashSet<>();
+        // completables submitted while their reconcile key was running
+        final Map<Object, Completable> dirty = new HashMap<>();
+        // completables waiting for the retry delay of their failed reconcile key
+        final Map<Object, Completable> backoff = new HashMap<>();
+
+        // true when the cluster is queued in the executor or being executed
+        boolean scheduled = false;
+
+        ClusterQueue(final ClusterKey key) {
+            this.key = key;
+        }
+
+        // called with the WorkQueue lock held
+        void add(final Object reconcileKey, final Completable completable) {
+            if (backoff.containsKey(reconcileKey)) {
+                logger.debug("reconcile key={} is backing off for cluster {}, merging in the retry", reconcileKey, key.getName());
+                backoff.put(reconcileKey, completable);
+                return;
+            }
+            if (pending.containsKey(reconcileKey)) {
+                logger.debug("coalescing pending reconcile key={} for cluster {}", reconcileKey, key.getName());
+                pending.put(reconcileKey, completable);
+                return;
+            }
+            if (running.contains(reconcileKey)) {
+                logger.debug("reconcile key={} is running for cluster {}, scheduling a follow-up", reconcileKey, key.getName());
+                dirty.put(reconcileKey, completable);
+                return;
+            }
+            enqueue(reconcileKey, completable);
+        }
+
+        // called with the WorkQueue lock held
+        private void enqueue(final Object reconcileKey, final Completable completable) {
+            pending.put(reconcileKey, completable);
+            order.addLast(reconcileKey);
+            queueDepth.incrementAndGet();
+            schedule();
+        }
+
+        // called with the WorkQueue lock held
+        private void schedule() {
+            if (!scheduled && !order.isEmpty()) {
+                scheduled = true;
+                executor.execute(this);
+            }
+        }
+
+        /**
+         * Execute the next item of this cluster, then give the worker back to other clusters.
+         */
+        @Override
+        public void run() {
+            final Object reconcileKey;
+            final Completable completable;
+            synchronized (WorkQueue.this) {
+                reconcileKey = order.pollFirst();
+                if (reconcileKey == null) {
+                    scheduled = false;
+                    return;
+                }
+                queueDepth.decrementAndGet();
+                completable = pending.remove(reconcileKey);
+                running.add(reconcileKey);
+            }
+
+            boolean failed = false;
+            try {
+                final Throwable e = completable.blockingGet();
+                if (e != null) {
+                    throw e;
+                }
+            }
+            catch (Throwable e) {
+                failed = true;
+                logger.error("uncaught exception propagated to work queue for cluster {}", key.getName(), e);
+            }
+            finally {
+                synchronized (WorkQueue.this) {
+                    running.remove(reconcileKey);
+                    final Completable followUp = dirty.remove(reconcileKey);
+                    final boolean retryable = !(reconcileKey instanceof UnkeyedItem);
+                    if (failed && retryable) {
+                        final long delayMs = rateLimiter.when(reconcileKey);
+                        logger.warn("requeuing reconcile key={} for cluster {} in {}ms after {} failure(s)",
+                                reconcileKey, key.getName(), delayMs, rateLimiter.failures(reconcileKey));
+                        backoff.put(reconcileKey, (followUp != null) ? followUp : completable);
+                        Completable.timer(delayMs, TimeUnit.MILLISECONDS).subscribe(() -> retry(reconcileKey));
+                    } else {
+                        if (retryable) {
+                            rateLimiter.forget(reconcileKey);
+                        }
+                        if (followUp != null && queues.get(key) == this) {
+                            enqueue(reconcileKey, followUp);
+                        }
+                    }
+                    scheduled = false;
+                    schedule();
+                }
+            }
+        }
+
+        private void retry(final Object reconcileKey) {
+            synchronized (WorkQueue.this) {
+                final Completable completable = backoff.remove(reconcileKey);
+                if (queues.get(key) != this) {
+                    rateLimiter.forget(reconcileKey);
+                } else if (completable != null) {
+                    enqueue(reconcileKey, completable);
+                }
+            }
         }
     }
-}
\ No newline at end of file
+}
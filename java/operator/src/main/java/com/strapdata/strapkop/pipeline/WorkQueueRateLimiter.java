@@ -0,0 +1,70 @@
+package com.strapdata.strapkop.pipeline;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Compute the requeue delay of failed reconciliations, as the max of :
+ * <ul>
+ *     <li>a per-key exponential backoff with jitter, reset when the key is forgotten (on success),</li>
+ *     <li>a global token bucket limiting the overall requeue rate.</li>
+ * </ul>
+ */
+public class WorkQueueRateLimiter {
+
+    private static final double JITTER = 0.2;
+
+    private final long baseDelayMs;
+    private final long maxDelayMs;
+
+    private final double tokensPerSecond;
+    private final int burst;
+
+    private final Map<Object, Integer> failures = new HashMap<>();
+
+    private double tokens;
+    private long lastRefillNanos;
+
+    public WorkQueueRateLimiter(final long baseDelayMs, final long maxDelayMs, final double tokensPerSecond, final int burst) {
+        this.baseDelayMs = baseDelayMs;
+        this.maxDelayMs = maxDelayMs;
+        this.tokensPerSecond = tokensPerSecond;
+        this.burst = burst;
+        this.tokens = burst;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * Record a failure for the key and return the delay in milliseconds before requeuing it.
+     */
+    public synchronized long when(final Object key) {
+        final int exp = failures.merge(key, 1, Integer::sum) - 1;
+        final long backoff = (exp >= 62 || baseDelayMs << exp <= 0) ? maxDelayMs : Math.min(maxDelayMs, baseDelayMs << exp);
+        final long jittered = backoff + (long) (backoff * JITTER * ThreadLocalRandom.current().nextDouble());
+        return Math.max(jittered, reserve());
+    }
+
+    /**
+     * Reset the backoff of a key, to call once it has been reconciled successfully.
+     */
+    public synchronized void forget(final Object key) {
+        failures.remove(key);
+    }
+
+    /**
+     * @return the number of consecutive failures recorded for the key
+     */
+    public synchronized int failures(final Object key) {
+        return failures.getOrDefault(key, 0);
+    }
+
+    // take a token from the bucket, possibly in the future, and return the wait time in milliseconds
+    private long reserve() {
+        final long now = System.nanoTime();
+        tokens = Math.min(burst, tokens + (now - lastRefillNanos) * tokensPerSecond / 1e9);
+        lastRefillNanos = now;
+        tokens -= 1;
+        return (tokens >= 0) ? 0 : (long) Math.ceil(-tokens * 1000 / tokensPerSecond);
+    }
+}
@@ -29,6 +29,7 @@ public class RegisterHandlers implements Preflight<Void> {
         bind(NodeStatusPipeline.class, ElassandraNodeStatusHandler.class);
         bind(TaskPipeline.class, TaskHandler.class);
         bind(ReaperPipeline.class, ReaperPodHandler.class);
+        bind(ConfigMapPipeline.class, UserConfigMapHandler.class);
         return null;
     }
     
@@ -3,6 +3,7 @@ package com.strapdata.strapkop.reconcilier;
 import com.google.gson.JsonSyntaxException;
 import com.strapdata.model.k8s.cassandra.DataCenter;
 import com.strapdata.strapkop.cache.ElassandraNodeStatusCache;
+import com.strapdata.strapkop.cache.GeneratedConfigMapCache;
 import com.strapdata.strapkop.cache.SidecarConnectionCache;
 import com.strapdata.strapkop.cql.CqlKeyspaceManager;
 import com.strapdata.strapkop.cql.CqlSessionSupplier;
@@ -30,6 +31,7 @@ public class DataCenterDeleteAction {
     private final DataCenter dataCenter;
     private final ElassandraNodeStatusCache elassandraNodeStatusCache;
     private final SidecarConnectionCache sidecarConnectionCache;
+    private final GeneratedConfigMapCache generatedConfigMapCache;
     private final CqlKeyspaceManager cqlKeyspaceManager;
     
     public DataCenterDeleteAction(K8sResourceUtils k8sResourceUtils,
@@ -37,6 +39,7 @@ public class DataCenterDeleteAction {
                                   AppsV1Api appsV1Api,
                                   ElassandraNodeStatusCache elassandraNodeStatusCache,
                                   SidecarConnectionCache sidecarConnectionCache,
+                                  GeneratedConfigMapCache generatedConfigMapCache,
                                   CqlKeyspaceManager cqlKeyspaceManager,
                                   @Parameter("dataCenter") DataCenter dataCenter) {
         this.k8sResourceUtils = k8sResourceUtils;
@@ -44,6 +47,7 @@ public class DataCenterDeleteAction {
         this.dataCenter = dataCenter;
         this.elassandraNodeStatusCache = elassandraNodeStatusCache;
         this.sidecarConnectionCache = sidecarConnectionCache;
+        this.generatedConfigMapCache = generatedConfigMapCache;
         this.cqlKeyspaceManager = cqlKeyspaceManager;
     }
     
@@ -59,11 +63,12 @@ public class DataCenterDeleteAction {
                 // cleanup local caches
                 elassandraNodeStatusCache.purgeDataCenter(dataCenter);
                 sidecarConnectionCache.purgeDataCenter(dataCenter);
+                generatedConfigMapCache.purgeDataCenter(dataCenter);
 
                 // delete tasks
 
                 // delete StatefulSets
-                k8sResourceUtils.listNamespacedStatefulSets(dataCenter.getMetadata().getNamespace(), null, labelSelector).forEach(statefulSet -> {
+                k8sResourceUtils.listCachedDataCenterStatefulSets(dataCenter).forEach(statefulSet -> {
                     try {
                         k8sResourceUtils.deleteStatefulSet(statefulSet);
                         logger.debug("Deleted StatefulSet namespace={} name={}", dataCenter.getMetadata().getNamespace(), statefulSet.getMetadata().getName());
@@ -107,7 +112,7 @@ public class DataCenterDeleteAction {
                     case BACKUP_AND_DELETE_PVC:
                         // TODO: backup
                     case DELETE_PVC:
-                        k8sResourceUtils.listNamespacedPods(dataCenter.getMetadata().getNamespace(), null, labelSelector).forEach(pod -> {
+                        k8sResourceUtils.listCachedNamespacedPods(dataCenter.getMetadata().getNamespace(), OperatorLabels.datacenter(dataCenter)).forEach(pod -> {
                             try {
                                 k8sResourceUtils.deletePersistentVolumeClaim(pod);
                             } catch (final JsonSyntaxException e) {
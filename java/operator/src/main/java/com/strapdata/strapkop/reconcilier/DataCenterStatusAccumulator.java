@@ -0,0 +1,47 @@
+package com.strapdata.strapkop.reconcilier;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.strapdata.model.k8s.cassandra.DataCenter;
+import com.strapdata.strapkop.k8s.K8sResourceUtils;
+import io.reactivex.Completable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Collect the status changes made to a datacenter during a reconciliation, and write them in a single status
+ * subresource update, or not at all when the status is unchanged.
+ */
+public class DataCenterStatusAccumulator {
+
+    private static final Logger logger = LoggerFactory.getLogger(DataCenterStatusAccumulator.class);
+
+    private final K8sResourceUtils k8sResourceUtils;
+    private final Gson gson;
+    private final DataCenter dataCenter;
+
+    // status as read at the beginning of the reconciliation
+    private JsonElement initialStatus;
+
+    public DataCenterStatusAccumulator(final K8sResourceUtils k8sResourceUtils, final Gson gson, final DataCenter dataCenter) {
+        this.k8sResourceUtils = k8sResourceUtils;
+        this.gson = gson;
+        this.dataCenter = dataCenter;
+        this.initialStatus = gson.toJsonTree(dataCenter.getStatus());
+    }
+
+    /**
+     * Write the datacenter status if it has changed.
+     */
+    public Completable flush() {
+        return Completable.defer(() -> {
+            final JsonElement status = gson.toJsonTree(dataCenter.getStatus());
+            if (initialStatus.equals(status)) {
+                logger.trace("datacenter={} status unchanged, skipping the status update", dataCenter.getMetadata().getName());
+                return Completable.complete();
+            }
+            return k8sResourceUtils.updateDataCenterStatus(dataCenter).ignoreElement()
+                    .doOnComplete(() -> initialStatus = status);
+        });
+    }
+}
@@ -8,11 +8,15 @@ import com.google.common.net.InetAddresses;
 import com.google.gson.reflect.TypeToken;
 import com.squareup.okhttp.Call;
 import com.strapdata.cassandra.k8s.ElassandraOperatorSeedProviderAndNotifier;
+import com.strapdata.model.Key;
 import com.strapdata.model.k8s.cassandra.*;
 import com.strapdata.model.k8s.task.Task;
 import com.strapdata.model.sidecar.ElassandraNodeStatus;
+import com.strapdata.strapkop.OperatorConfig;
 import com.strapdata.strapkop.StrapkopException;
 import com.strapdata.strapkop.cache.ElassandraNodeStatusCache;
+import com.strapdata.strapkop.cache.GeneratedConfigMapCache;
+import com.strapdata.strapkop.cache.NodeCache;
 import com.strapdata.strapkop.cql.*;
 import com.strapdata.strapkop.event.ElassandraPod;
 import com.strapdata.strapkop.k8s.K8sResourceUtils;
@@ -72,6 +76,9 @@ public class DataCenterUpdateAction {
     public static final long CASSANDRA_USER_ID = 999L;
     public static final long CASSANDRA_GROUP_ID = 999L;
 
+    // rack configmap file switching off the consistent range movement check for the nodes of a concurrent scale up wave
+    public static final String CONCURRENT_BOOTSTRAP_OPTIONS = "jvm.options.d/002-concurrent-bootstrap.options";
+
     private final ApplicationContext context;
     private final CoreV1Api coreApi;
     private final AppsV1Api appsApi;
@@ -91,8 +98,17 @@ public class DataCenterUpdateAction {
     private final CqlKeyspaceManager cqlKeyspaceManager;
 
     private final ElassandraNodeStatusCache elassandraNodeStatusCache;
+    private final NodeCache nodeCache;
+    private final GeneratedConfigMapCache generatedConfigMapCache;
+    private final OperatorConfig operatorConfig;
     public final Builder builder = new Builder();
 
+    // set when a step is deferred on a condition that no k8s or node status event will signal
+    private volatile boolean requeueRequested = false;
+
+    // rack configmaps to write back without the concurrent bootstrap options, once their scale up wave is done
+    private final List<Completable> rackConfigResets = new ArrayList<>();
+
     public DataCenterUpdateAction(final ApplicationContext context,
                                   final CoreV1Api coreApi,
                                   final AppsV1Api appsApi,
@@ -102,7 +118,10 @@ public class DataCenterUpdateAction {
                                   final CqlRoleManager cqlRoleManager,
                                   final CqlKeyspaceManager cqlKeyspaceManager,
                                   final ElassandraNodeStatusCache elassandraNodeStatusCache,
+                                  final NodeCache nodeCache,
+                                  final GeneratedConfigMapCache generatedConfigMapCache,
                                   final SidecarClientFactory sidecarClientFactory,
+                                  final OperatorConfig operatorConfig,
                                   @Parameter("dataCenter") com.strapdata.model.k8s.cassandra.DataCenter dataCenter,
                                   final CqlLicenseManager cqlLicenseManager) {
         this.context = context;
@@ -120,7 +139,10 @@ public class DataCenterUpdateAction {
         this.cqlLicenseManager = cqlLicenseManager;
         this.cqlKeyspaceManager = cqlKeyspaceManager;
         this.elassandraNodeStatusCache = elassandraNodeStatusCache;
+        this.nodeCache = nodeCache;
+        this.generatedConfigMapCache = generatedConfigMapCache;
         this.sidecarClientFactory = sidecarClientFactory;
+        this.operatorConfig = operatorConfig;
         if (dataCenter.getStatus() == null) {
             dataCenter.setStatus(new DataCenterStatus());
         }
@@ -147,9 +169,7 @@ public class DataCenterUpdateAction {
         return Single.fromCallable(new Callable<TreeMap<String, V1StatefulSet>>() {
             @Override
             public TreeMap<String, V1StatefulSet> call() throws Exception {
-                final Iterable<V1StatefulSet> statefulSetsIterable = k8sResourceUtils.listNamespacedStatefulSets(
-                        dataCenterMetadata.getNamespace(), null,
-                        OperatorLabels.toSelector(OperatorLabels.datacenter(dataCenter)));
+                final Iterable<V1StatefulSet> statefulSetsIterable = k8sResourceUtils.listCachedDataCenterStatefulSets(dataCenter);
 
                 final TreeMap<String, V1StatefulSet> result = new TreeMap<>();
 
@@ -239,23 +259,29 @@ public class DataCenterUpdateAction {
                 })
                 .flatMap(s4 -> fetchExistingStatefulSetsByZone())
                 .flatMapCompletable(existingStsMap -> {
-                    Zones zones = new Zones(this.coreApi, existingStsMap);
+                    // nodes are listed only until the node informer is synced
+                    Zones zones = nodeCache.isSynced() ? new Zones(nodeCache.countNodesByZone(), existingStsMap) : new Zones(this.coreApi, existingStsMap);
 
-                    // 1.lookup for evolving rack
+                    // 1.lookup for evolving racks, several racks may be updating when maxUnavailableRacks > 1
                     final Map<String, RackStatus> rackStatusByName = new HashMap<>();
-                    RackStatus movingRack = null;
+                    final List<RackStatus> movingRacks = new ArrayList<>();
                     for(RackStatus rackStatus : dataCenterStatus.getRackStatuses()) {
                         rackStatusByName.put(rackStatus.getName(), rackStatus);
                         if (!rackStatus.getPhase().equals(RackPhase.RUNNING)) {
-                            if (movingRack != null)
-                                logger.error("Found more than one moving rack=[{},{}]", movingRack.getName(), rackStatus.getName());
-                            movingRack = rackStatus;
+                            movingRacks.add(rackStatus);
                         }
                     }
+                    if (movingRacks.size() > 1 &&
+                            !movingRacks.stream().allMatch(r -> RackPhase.UPDATING.equals(r.getPhase()) || RackPhase.FAILED.equals(r.getPhase())) &&
+                            !movingRacks.stream().allMatch(r -> RackPhase.SCALING_UP.equals(r.getPhase())))
+                        logger.error("Found more than one moving rack={}", movingRacks.stream().map(RackStatus::getName).collect(Collectors.toList()));
 
+                    final Set<String> movingRackNames = movingRacks.stream().map(RackStatus::getName).collect(Collectors.toSet());
                     ElassandraPod failedPod = null;
+                    final Set<String> updatingRacks = new HashSet<>();
+                    final List<Completable> partitionSteps = new ArrayList<>();
 
-                    if (movingRack != null) {
+                    for (RackStatus movingRack : movingRacks) {
                         Zone movingZone = zones.zones.get(movingRack.getName());
                         logger.debug("movingRack={} phase={} isReady={} isUpdating={} isScalingUp={} isScalingDown={} firstPodStatus={} lastPodStatus={}",
                                 movingRack.getName(), movingRack.getPhase(), movingZone.isReady(), movingZone.isScalingUp(), movingZone.isScalingDown(),
@@ -272,23 +298,32 @@ public class DataCenterUpdateAction {
                                 }
                                 break;
                             case UPDATING:
-                                // rolling update done and first node NORMAL
-                                if (!movingZone.isUpdating() && elassandraNodeStatusCache.isNormal(movingZone.firstPod(dataCenter))) {
+                                // rolling update done (on the expected statefulset with all pods released) and first node NORMAL
+                                if (!movingZone.isUpdating() && movingZone.isUpdatedTo(movingRack.getConfigMapFingerPrint()) &&
+                                        elassandraNodeStatusCache.isNormal(movingZone.firstPod(dataCenter))) {
                                     movingRack.setPhase(RackPhase.RUNNING);
+                                    movingRack.setConfigMapFingerPrint(null);
                                     updateDatacenterStatus(DataCenterPhase.RUNNING, zones, rackStatusByName);
                                     logger.debug("First node NORMAL after rolling UPDATE in rack={} size={}", movingZone.name, movingZone.size);
+                                } else {
+                                    updatingRacks.add(movingRack.getName());
+                                    partitionSteps.add(nextPartitionStep(movingZone, existingStsMap, movingRackNames));
                                 }
                                 break;
                             case SCALING_UP:
                                 // scale up done and last node NORMAL
 
                                 Integer expectedReplicas = movingZone.sts.get().getSpec().getReplicas();
-                                boolean replicasRunning = (expectedReplicas == elassandraNodeStatusCache.countNodesInStateForRack(movingZone.name, ElassandraNodeStatus.NORMAL));
+                                boolean replicasRunning = (expectedReplicas == elassandraNodeStatusCache.countNodesInStateForRack(dataCenter, movingZone.name, ElassandraNodeStatus.NORMAL));
 
                                 if (!movingZone.isScalingUp() && replicasRunning) {
                                     movingRack.setJoinedReplicas(movingZone.size);
+                                    movingRack.setJoiningReplicas(0);
+                                    rackConfigResets.add(new ConfigMapVolumeMounts(zones, movingZone.name).rackConfig.createOrReplaceNamespacedConfigMap().ignoreElement());
                                     movingRack.setPhase(RackPhase.RUNNING);
-                                    updateDatacenterStatus(DataCenterPhase.RUNNING, zones, rackStatusByName);
+                                    // the datacenter remains SCALING_UP until all the racks of the wave are done
+                                    final boolean waveDone = rackStatusByName.values().stream().noneMatch(r -> RackPhase.SCALING_UP.equals(r.getPhase()));
+                                    updateDatacenterStatus(waveDone ? DataCenterPhase.RUNNING : DataCenterPhase.SCALING_UP, zones, rackStatusByName);
                                     logger.debug("Last node NORMAL after SCALE_UP in rack={} size={}", movingZone.name, movingZone.size);
                                 }
                                 break;
@@ -318,6 +353,7 @@ public class DataCenterUpdateAction {
                         switch (movingRack.getPhase()) {
                             case RUNNING:
                             case FAILED:
+                            case UPDATING:
                                 break;
                             default:
                                 logger.debug("Waiting ongoing operation phase={} rack={} size={}", movingRack.getPhase(), movingZone.name, movingZone.size);
@@ -325,9 +361,22 @@ public class DataCenterUpdateAction {
                         }
                     }
 
-                    // check all existing pod are UP and NORMAL before starting a new operation
+                    // racks still rolling keep the datacenter UPDATING, more racks may start within the maxUnavailableRacks limit
+                    final int maxUpdatingRacks = maxUpdatingRacks(zones.zones.size());
+                    if (!updatingRacks.isEmpty()) {
+                        if (!DataCenterPhase.ERROR.equals(dataCenterStatus.getPhase()))
+                            updateDatacenterStatus(DataCenterPhase.UPDATING, zones, rackStatusByName);
+                        if (failedPod != null || updatingRacks.size() >= maxUpdatingRacks) {
+                            logger.debug("Waiting rolling update of racks={} maxUpdatingRacks={}", updatingRacks, maxUpdatingRacks);
+                            return Completable.concat(partitionSteps);
+                        }
+                    }
+
+                    // check all existing pod are UP and NORMAL before starting a new operation, except in racks being updated
                     int totalNormalPod = 0;
                     for (ElassandraPod pod : enumeratePods(existingStsMap)) {
+                        if (updatingRacks.contains(pod.getRack()))
+                            continue;
                         ElassandraNodeStatus podStatus = Optional
                                 .ofNullable(elassandraNodeStatusCache.get(pod))
                                 .orElse(ElassandraNodeStatus.UNKNOWN);
@@ -346,6 +395,7 @@ public class DataCenterUpdateAction {
                         // before scaling, if at least a pod is NORMAL, update keyspaces and roles if needed
                         final CqlSessionHandler cqlSessionHandler = context.createBean(CqlSessionHandler.class, this.cqlRoleManager);
                         todo = this.cqlKeyspaceManager.reconcileKeyspaces(dataCenter, cqlSessionHandler)
+                                .andThen(this.cqlKeyspaceManager.readReplications(dataCenter, cqlSessionHandler))
                                 .andThen(this.cqlRoleManager.reconcileRole(dataCenter, cqlSessionHandler))
                                 .andThen(this.cqlLicenseManager.verifyLicense(dataCenter, cqlSessionHandler))
                                 .doFinally(new Action() {
@@ -356,11 +406,14 @@ public class DataCenterUpdateAction {
                                 });
                     }
 
-                    // look up for the next rack to update if needed.
+                    // look up for the next racks to update if needed, up to maxUpdatingRacks racks rolling at the same time.
                     // if a pod is failed, only update the config in the same rack to avoid a general outage !
+                    final List<Completable> rackUpdates = new ArrayList<>();
                     for (V1StatefulSet v1StatefulSet : existingStsMap.values()) {
                         String stsFingerprint = v1StatefulSet.getSpec().getTemplate().getMetadata().getAnnotations().get("configmap-fingerprint");
                         String rack = v1StatefulSet.getSpec().getTemplate().getMetadata().getLabels().get("rack");
+                        if (updatingRacks.contains(rack))
+                            continue;
                         ConfigMapVolumeMounts configMapVolumeMounts = new ConfigMapVolumeMounts(zones, rack);
                         String configFingerprint = configMapVolumeMounts.fingerPrint();
                         if (!configFingerprint.equals(stsFingerprint)) {
@@ -374,14 +427,22 @@ public class DataCenterUpdateAction {
                                         configFingerprint, v1StatefulSet.getMetadata().getName(), rack, replicas, dataCenterStatus.getPhase());
                                 logger.debug("DataCenter={} in namespace={} phase={} -> UPDATING",
                                         dataCenterMetadata.getName(), dataCenterMetadata.getNamespace(), dataCenterStatus.getPhase());
-                                rackStatusByName.get(rack).setPhase(RackPhase.UPDATING);
-                                updateDatacenterStatus(DataCenterPhase.UPDATING, zones, rackStatusByName);
-                                return todo
-                                        .andThen(configMapVolumeMounts.createOrReplaceNamespacedConfigMaps())
-                                        .andThen(updateRack(zones, builder.buildStatefulSetRack(rack, replicas, configMapVolumeMounts), rack, rackStatusByName));
+                                rackStatusByName.get(rack).setPhase(RackPhase.UPDATING).setConfigMapFingerPrint(configFingerprint);
+                                updatingRacks.add(rack);
+                                // the operator lowers the partition step by step, unless the rack has a failed pod to fix
+                                final V1StatefulSet updatedSts = builder.buildStatefulSetRack(rack, replicas, configMapVolumeMounts);
+                                updatedSts.getSpec().getUpdateStrategy().getRollingUpdate().setPartition((failedPod != null) ? 0 : replicas);
+                                rackUpdates.add(configMapVolumeMounts.createOrReplaceNamespacedConfigMaps()
+                                        .andThen(updateRack(zones, updatedSts, rack, rackStatusByName)));
+                                if (failedPod != null || updatingRacks.size() >= maxUpdatingRacks)
+                                    break;
                             }
                         }
                     }
+                    if (!rackUpdates.isEmpty())
+                        return todo.andThen(Completable.concat(partitionSteps)).andThen(Completable.concat(rackUpdates));
+                    if (!updatingRacks.isEmpty())
+                        return todo.andThen(Completable.concat(partitionSteps));
 
                     if (failedPod != null) {
                         logger.info("pod={} FAILED, cannot scale the datacenter now", failedPod);
@@ -406,23 +467,30 @@ public class DataCenterUpdateAction {
                                         })
                                         .andThen(k8sResourceUtils.createNamespacedStatefulSet(sts).ignoreElement()));
                             }
-                            // +1 on sts replicas
-                            V1StatefulSet sts = zone.getSts().get();
-                            sts.getSpec().setReplicas(sts.getSpec().getReplicas() + 1);
+                            // +1 on sts replicas in each rack of the wave, the cached sts is left unchanged until the patch is watched back
+                            final List<Zone> wave = zones.nextToScaleUp(scaleUpWaveSize(zones)).stream()
+                                    .filter(z -> z.getSts().isPresent())
+                                    .collect(Collectors.toList());
+                            // only the nodes of a concurrent wave bootstrap without the consistent range movement check
+                            final boolean concurrentBootstrap = wave.size() > 1;
+                            final List<Completable> scaleUps = new ArrayList<>();
                             dataCenterStatus.setNeedCleanup(true);
-                            rackStatusByName.get(zone.name).setPhase(RackPhase.SCALING_UP);
-                            updateDatacenterStatus(DataCenterPhase.SCALING_UP, zones, rackStatusByName);
-                            logger.debug("SCALE_UP started in rack={} size={}", zone.name, zone.size);
-                            if (sts.getSpec().getReplicas() > 1) {
-                                // call ConfigMapVolumeMount here to update seeds in case of single rack with multi-nodes
-                                ConfigMapVolumeMounts configMapVolumeMounts = new ConfigMapVolumeMounts(zones, zone.name);
-                                return todo
-                                        .andThen(sts.getSpec().getReplicas() > 1 ? configMapVolumeMounts.createOrReplaceNamespacedConfigMaps() : Completable.complete())
-                                        .andThen(k8sResourceUtils.replaceNamespacedStatefulSet(sts).ignoreElement());
-                            } else {
-                                return todo
-                                        .andThen(k8sResourceUtils.replaceNamespacedStatefulSet(sts).ignoreElement());
+                            for (Zone waveZone : wave) {
+                                V1StatefulSet sts = waveZone.getSts().get();
+                                int replicas = sts.getSpec().getReplicas() + 1;
+                                rackStatusByName.get(waveZone.name).setPhase(RackPhase.SCALING_UP).setJoiningReplicas(1);
+                                logger.debug("SCALE_UP started in rack={} size={} replicas={}", waveZone.name, waveZone.size, replicas);
+                                if (replicas > 1 || concurrentBootstrap) {
+                                    // call ConfigMapVolumeMount here to update seeds in case of single rack with multi-nodes
+                                    ConfigMapVolumeMounts configMapVolumeMounts = new ConfigMapVolumeMounts(zones, waveZone.name, concurrentBootstrap);
+                                    scaleUps.add(configMapVolumeMounts.createOrReplaceNamespacedConfigMaps()
+                                            .andThen(k8sResourceUtils.scaleNamespacedStatefulSet(sts, replicas).ignoreElement()));
+                                } else {
+                                    scaleUps.add(k8sResourceUtils.scaleNamespacedStatefulSet(sts, replicas).ignoreElement());
+                                }
                             }
+                            updateDatacenterStatus(DataCenterPhase.SCALING_UP, zones, rackStatusByName);
+                            return todo.andThen(Completable.concat(scaleUps));
                         }
                         logger.warn("Cannot scale up, no free node in datacenter={} in namespace={}", dataCenterMetadata.getName(), dataCenterMetadata.getNamespace());
                     } else if (zones.totalReplicas() > dataCenter.getSpec().getReplicas()) {
@@ -449,15 +517,15 @@ public class DataCenterUpdateAction {
                                 case DECOMMISSIONED:
                                 case DRAINED:
                                 case DOWN:
-                                    sts.getSpec().setReplicas(sts.getSpec().getReplicas() - 1);
+                                    int replicas = sts.getSpec().getReplicas() - 1;
                                     logger.info("Scaling down sts={} to {}, removing pod={}",
-                                            sts.getMetadata().getName(), sts.getSpec().getReplicas(), elassandraPod);
+                                            sts.getMetadata().getName(), replicas, elassandraPod);
                                     rackStatusByName.get(zone.name).setPhase(RackPhase.SCALING_DOWN);
                                     updateDatacenterStatus(DataCenterPhase.SCALING_DOWN, zones, rackStatusByName);
                                     // scale down sts
                                     logger.debug("SCALE_DOWN started in rack={} size={}, removing pod={} status={}",
                                             zone.name, zone.size, elassandraPod, elassandraNodeStatus);
-                                    return todo.andThen(k8sResourceUtils.replaceNamespacedStatefulSet(sts).ignoreElement());
+                                    return todo.andThen(k8sResourceUtils.scaleNamespacedStatefulSet(sts, replicas).ignoreElement());
                                 default:
                                     logger.info("Waiting a valid status to remove pod={} from sts={} in namspace={}",
                                             elassandraPod,sts.getMetadata().getName(), dataCenterMetadata.getNamespace());
@@ -466,10 +534,185 @@ public class DataCenterUpdateAction {
                         logger.warn("Cannot scale down, no more replicas in datacenter={} in namespace={}", dataCenterMetadata.getName(), dataCenterMetadata.getNamespace());
                     }
                     return todo;
-                });
+                })
+                .andThen(Completable.defer(() -> Completable.concat(rackConfigResets)));
+    }
+
+
+
+    /**
+     * Number of racks allowed to roll at the same time: the spec maxUnavailableRacks, capped so that a quorum of
+     * replicas remains available for every token range of every keyspace.
+     *
+     * With the NetworkTopologyStrategy, replicas of a token range are placed on distinct racks, so k racks restarting
+     * make up to k replicas of a range unavailable. The cap is computed for the target replication factors of the system,
+     * elastic_admin and managed keyspaces, and for the replication of every keyspace as read by the last reconciliation.
+     * Until the replications are read, or when the replicas of a keyspace may share a rack, one rack rolls at a time.
+     */
+    int maxUpdatingRacks(int racks) {
+        int maxRacks = Optional.ofNullable(dataCenterSpec.getMaxUnavailableRacks()).orElse(1);
+        if (maxRacks <= 1 || racks <= 1)
+            return 1;
+        final Map<String, CqlKeyspaceManager.Replication> replications = cqlKeyspaceManager.replications(dataCenter);
+        if (replications == null)
+            return 1;
+        final int replicas = dataCenterSpec.getReplicas();
+        for (Integer rf : cqlKeyspaceManager.targetReplicationFactors(dataCenter).values()) {
+            if (rf > 0)
+                maxRacks = Math.min(maxRacks, toleratedRacks(Math.min(rf, replicas), racks));
+        }
+        for (CqlKeyspaceManager.Replication replication : replications.values()) {
+            maxRacks = Math.min(maxRacks, replication.isRackAware() ? toleratedRacks(Math.min(replication.getRf(), replicas), racks) : 1);
+        }
+        return Math.max(1, maxRacks);
+    }
+
+    /**
+     * Number of nodes added at the same time when scaling up, at most one per rack: the spec scaleUpWaveSize, reduced to
+     * a single node unless concurrent bootstraps are safe.
+     *
+     * With the NetworkTopologyStrategy, a node joining a rack only takes over ranges from the nodes of its own rack when
+     * each rack holds exactly one replica of every range. With more racks than the RF, nodes joining distinct racks may
+     * take over replicas of the same range from distinct racks at the same time. As the consistent range movement check
+     * is off for the whole wave, the racks must be as many as the replication factor of every keyspace having replicas
+     * in the datacenter, as read by the last reconciliation, and as the target replication factor of the system,
+     * elastic_admin and managed keyspaces. Keyspaces replicated on every node are ignored, no replica leaves them.
+     * Concurrent bootstraps also require cassandra.consistent.rangemovement=false, set in the rack configmaps of a wave
+     * of several nodes until the wave is done. New racks are still created one at a time.
+     */
+    int scaleUpWaveSize(Zones zones) {
+        final int waveSize = Optional.ofNullable(dataCenterSpec.getScaleUpWaveSize()).orElse(1);
+        if (waveSize <= 1)
+            return 1;
+        final Map<String, CqlKeyspaceManager.Replication> replications = cqlKeyspaceManager.replications(dataCenter);
+        if (replications == null) {
+            logger.debug("Scaling up one node at a time, keyspace replications not read yet");
+            return 1;
+        }
+        final int replicas = dataCenterSpec.getReplicas();
+        final long racks = zones.zones.values().stream().filter(z -> z.getSts().isPresent()).count();
+        for (Map.Entry<String, Integer> entry : cqlKeyspaceManager.targetReplicationFactors(dataCenter).entrySet()) {
+            if (entry.getValue() > 0 && !concurrentBootstrapSafe(entry.getKey(), new CqlKeyspaceManager.Replication(entry.getValue(), true), racks))
+                return 1;
+        }
+        for (Map.Entry<String, CqlKeyspaceManager.Replication> entry : replications.entrySet()) {
+            if (!concurrentBootstrapSafe(entry.getKey(), entry.getValue(), racks))
+                return 1;
+        }
+        return Math.max(1, Math.min(waveSize, replicas - zones.totalReplicas()));
+    }
+
+    private boolean concurrentBootstrapSafe(String keyspace, CqlKeyspaceManager.Replication replication, long racks) {
+        final int rf = Math.min(replication.getRf(), dataCenterSpec.getReplicas());
+        if (rf >= dataCenterSpec.getReplicas())
+            return true;
+        if (!replication.isRackAware() || rf != racks) {
+            logger.debug("Scaling up one node at a time, racks={} != rf={} of keyspace={} rackAware={}", racks, rf, keyspace, replication.isRackAware());
+            return false;
+        }
+        return true;
     }
 
+    /**
+     * @return the number of racks that can be unavailable while keeping a quorum of a keyspace having the replication factor rf.
+     */
+    static int toleratedRacks(int rf, int racks) {
+        final int replicasPerRack = (rf + racks - 1) / racks;
+        final int toleratedReplicas = rf - (rf / 2 + 1);
+        return toleratedReplicas / replicasPerRack;
+    }
 
+    /**
+     * @return true if the datacenter must be reconciled again later, to retry a deferred step.
+     */
+    public boolean isRequeueRequested() {
+        return requeueRequested;
+    }
+
+    /**
+     * Lower the rolling update partition of a rack by podsPerStep pods, once the pods of the previous steps are updated
+     * and NORMAL, the pods of the rack have pending compactions below the rolling update threshold, and the hints to the
+     * restarted pods are replayed. Kubernetes still restarts the pods released by a step one by one. A deferred step
+     * requests a requeue of the datacenter.
+     *
+     * The hints to the restarted pods are mostly stored by the coordinators of the other racks, so pending hints are
+     * checked on the pods of the rack and of the racks not moving, which must also be NORMAL in the node status cache.
+     * The pods of other moving racks may be down and are not asked.
+     *
+     * @param movingRacks the racks not RUNNING, whose pods may be down
+     */
+    Completable nextPartitionStep(final Zone zone, final TreeMap<String, V1StatefulSet> existingStsMap, final Set<String> movingRacks) {
+        final V1StatefulSet sts = zone.getSts().get();
+        final int partition = zone.partition();
+        if (partition <= 0)
+            return Completable.complete();
+
+        final int replicas = sts.getSpec().getReplicas();
+        final V1StatefulSetStatus status = sts.getStatus();
+        if (status == null ||
+                Optional.ofNullable(status.getUpdatedReplicas()).orElse(0) < replicas - partition ||
+                Optional.ofNullable(status.getReadyReplicas()).orElse(0) < replicas) {
+            logger.debug("Waiting updated pods of rack={} partition={}", zone.name, partition);
+            requeueRequested = true;
+            return Completable.complete();
+        }
+        for (int i = partition; i < replicas; i++) {
+            if (!elassandraNodeStatusCache.isNormal(zone.pod(dataCenter, i))) {
+                logger.debug("Waiting pod={} NORMAL in rack={} partition={}", zone.pod(dataCenter, i), zone.name, partition);
+                requeueRequested = true;
+                return Completable.complete();
+            }
+        }
+
+        for (ElassandraPod pod : enumeratePods(existingStsMap)) {
+            if (!movingRacks.contains(pod.getRack()) && !elassandraNodeStatusCache.isNormal(pod)) {
+                logger.debug("Waiting pod={} NORMAL before rolling rack={} partition={}", pod, zone.name, partition);
+                requeueRequested = true;
+                return Completable.complete();
+            }
+        }
+
+        final RollingUpdatePolicy policy = Optional.ofNullable(dataCenterSpec.getRollingUpdate()).orElse(new RollingUpdatePolicy());
+        final int nextPartition = Math.max(0, partition - Math.max(1, policy.getPodsPerStep()));
+        final List<ElassandraPod> pods = new ArrayList<>();
+        for (ElassandraPod pod : enumeratePods(existingStsMap)) {
+            if (pod.getRack().equals(zone.name) || !movingRacks.contains(pod.getRack()))
+                pods.add(pod);
+        }
+        return Flowable.fromIterable(pods)
+                .flatMapSingle(pod -> isIdle(pod, policy, pod.getRack().equals(zone.name)), false, operatorConfig.getNodeStatus().getConcurrency())
+                .all(idle -> idle)
+                .flatMapCompletable(idle -> {
+                    if (!idle) {
+                        logger.info("Delaying rolling update of rack={} partition={}, nodes are busy", zone.name, partition);
+                        requeueRequested = true;
+                        return Completable.complete();
+                    }
+                    logger.info("Rolling update of rack={} partition={} -> {}", zone.name, partition, nextPartition);
+                    return k8sResourceUtils.updateNamespacedStatefulSetPartition(sts, nextPartition).ignoreElement();
+                });
+    }
+
+    /**
+     * @param checkCompactions true to also check the pending compactions, of the pods of the rolling rack
+     * @return true if the node is NORMAL with pending compactions and hints below the rolling update thresholds.
+     */
+    private Single<Boolean> isIdle(final ElassandraPod pod, final RollingUpdatePolicy policy, final boolean checkCompactions) {
+        return Single.defer(() -> sidecarClientFactory.clientForPod(pod).health())
+                .timeout(operatorConfig.getNodeStatus().getTimeoutMs(), TimeUnit.MILLISECONDS)
+                .map(health -> {
+                    final boolean idle = ElassandraNodeStatus.NORMAL.equals(health.getStatus()) &&
+                            (!checkCompactions || policy.getMaxPendingCompactions() < 0 || health.getPendingCompactions() <= policy.getMaxPendingCompactions()) &&
+                            (policy.getMaxPendingHintsEndpoints() < 0 || health.getPendingHintsEndpoints() <= policy.getMaxPendingHintsEndpoints());
+                    if (!idle)
+                        logger.debug("pod={} health={}", pod, health);
+                    return idle;
+                })
+                .onErrorReturn(e -> {
+                    logger.debug("pod={} health check failed: {}", pod, e.toString());
+                    return false;
+                });
+    }
 
     /**
      * Currently, only one node is used as a seed. It must be the first node.
@@ -501,6 +744,7 @@ public class DataCenterUpdateAction {
         public final V1ConfigMap configMap;
         public final V1ConfigMapVolumeSource volumeSource;
         public final String mountName, mountPath;
+        private String fingerprint = null;
 
         public ConfigMapVolumeMountBuilder(final V1ConfigMap configMap, final V1ConfigMapVolumeSource volumeSource, final String mountName, final String mountPath) {
             this.configMap = configMap;
@@ -530,11 +774,15 @@ public class DataCenterUpdateAction {
         }
 
         public String fingerPrint() {
-            return builder.fingerPrint(configMap);
+            if (fingerprint == null) {
+                fingerprint = builder.fingerPrint(configMap);
+            }
+            return fingerprint;
         }
 
         public ConfigMapVolumeMountBuilder addFile(final String path, final String content) {
             final String encodedKey = path.replaceAll("\\W", "_");
+            fingerprint = null;
 
             configMap.putDataItem(encodedKey, content);
             volumeSource.addItemsItem(new V1KeyToPath().key(encodedKey).path(path));
@@ -548,6 +796,11 @@ public class DataCenterUpdateAction {
         }
     }
 
+    @FunctionalInterface
+    interface ConfigMapGenerator {
+        ConfigMapVolumeMountBuilder generate() throws IOException, ApiException;
+    }
+
     class ConfigMapVolumeMounts implements Iterable<ConfigMapVolumeMountBuilder> {
         public ConfigMapVolumeMountBuilder specConfig;  // configmap generated from CRD
         public ConfigMapVolumeMountBuilder userConfig;  // user provided configmap
@@ -555,30 +808,67 @@ public class DataCenterUpdateAction {
         public ConfigMapVolumeMountBuilder rackConfig;  // per rack configmap
 
         public ConfigMapVolumeMounts(Zones zones, String rack) throws IOException, ApiException {
-            this.specConfig = builder.buildConfigMapSpec();
-            this.rackConfig = builder.buildConfigMapRack(rack);
-            this.seedConfig = builder.buildConfigMapSeed(zones);
+            this(zones, rack, false);
+        }
+
+        /**
+         * @param concurrentBootstrap true to let the joining nodes of the rack bootstrap concurrently with other racks,
+         *                            the rack configmap is not part of the fingerprint and does not trigger a rolling restart.
+         */
+        public ConfigMapVolumeMounts(Zones zones, String rack, boolean concurrentBootstrap) throws IOException, ApiException {
+            // generated configmaps only depend on the datacenter spec, and on the joined racks for seeds
+            // (the uid is part of the version because the configmaps are owned by the datacenter)
+            final String generation = dataCenterMetadata.getUid() + "-" + dataCenterMetadata.getGeneration();
+            this.specConfig = generateConfigMap(OperatorNames.specConfig(dataCenter), generation, builder::buildConfigMapSpec);
+            this.rackConfig = generateConfigMap(OperatorNames.rackConfig(dataCenter, rack), generation + (concurrentBootstrap ? "-concurrent-bootstrap" : ""),
+                    () -> builder.buildConfigMapRack(rack, concurrentBootstrap));
+            this.seedConfig = generateConfigMap(OperatorNames.seedConfig(dataCenter), generation + "-" + builder.seedRacks(), () -> builder.buildConfigMapSeed(zones));
             if (dataCenterSpec.getUserConfigMapVolumeSource() != null) {
                 // load and make user config unique here to mount the files
                 this.userConfig = buildConfigMapUserConfig();
             }
         }
 
-        private ConfigMapVolumeMountBuilder buildConfigMapUserConfig() {
-            return k8sResourceUtils.readNamespacedConfigMap(dataCenterMetadata.getNamespace(), dataCenterSpec.getUserConfigMapVolumeSource().getName())
-                    .map(configMap -> {
-                        V1ObjectMeta meta = new V1ObjectMeta()
-                                .name(configMap.getMetadata().getName())
-                                .namespace(configMap.getMetadata().getNamespace())
-                                .annotations(configMap.getMetadata().getAnnotations())
-                                .labels(configMap.getMetadata().getLabels())
-                                .addOwnerReferencesItem(OperatorNames.ownerReference(dataCenter));
-                        V1ConfigMap configMap1 = new V1ConfigMap()
-                                .metadata(meta)
-                                .data(configMap.getData())
-                                .binaryData(configMap.getBinaryData());
-                        return new ConfigMapVolumeMountBuilder(configMap1, dataCenterSpec.getUserConfigMapVolumeSource(), "user-config-volume", "/tmp/user-config");
-                    }).blockingGet();
+        /**
+         * Return a copy of the memoized configmap generated for this version, or generate and memoize it.
+         */
+        private ConfigMapVolumeMountBuilder generateConfigMap(String name, String version, ConfigMapGenerator generator) throws IOException, ApiException {
+            return generateConfigMap(new Key(name, dataCenterMetadata.getNamespace()), version, generator);
+        }
+
+        private ConfigMapVolumeMountBuilder generateConfigMap(Key key, String version, ConfigMapGenerator generator) throws IOException, ApiException {
+            GeneratedConfigMapCache.Entry entry = generatedConfigMapCache.get(key, version);
+            if (entry == null) {
+                final ConfigMapVolumeMountBuilder generated = generator.generate();
+                entry = new GeneratedConfigMapCache.Entry(dataCenterMetadata.getName(), version, generated.configMap,
+                        generated.volumeSource, generated.mountName, generated.mountPath, generated.fingerPrint());
+                generatedConfigMapCache.put(key, entry);
+            }
+            final ConfigMapVolumeMountBuilder configMapVolumeMountBuilder = new ConfigMapVolumeMountBuilder(entry.copyConfigMap(),
+                    entry.copyVolumeSource(), entry.getMountName(), entry.getMountPath());
+            configMapVolumeMountBuilder.fingerprint = entry.getFingerprint();
+            return configMapVolumeMountBuilder;
+        }
+
+        private ConfigMapVolumeMountBuilder buildConfigMapUserConfig() throws IOException, ApiException {
+            final String userConfigMapName = dataCenterSpec.getUserConfigMapVolumeSource().getName();
+            final V1ConfigMap configMap = k8sResourceUtils.readCachedNamespacedConfigMap(dataCenterMetadata.getNamespace(), userConfigMapName).blockingGet();
+            // the copy is owned by this datacenter, while the user configmap may be shared by several datacenters
+            final Key key = new Key(dataCenterMetadata.getName() + "/" + userConfigMapName, dataCenterMetadata.getNamespace());
+            return generateConfigMap(key, dataCenterMetadata.getUid() + "-" + dataCenterMetadata.getGeneration() + "-" + configMap.getMetadata().getResourceVersion(), () -> {
+                // the user configmap may come from the informer cache, its maps are copied
+                V1ObjectMeta meta = new V1ObjectMeta()
+                        .name(configMap.getMetadata().getName())
+                        .namespace(configMap.getMetadata().getNamespace())
+                        .annotations(configMap.getMetadata().getAnnotations() == null ? null : new HashMap<>(configMap.getMetadata().getAnnotations()))
+                        .labels(configMap.getMetadata().getLabels() == null ? null : new HashMap<>(configMap.getMetadata().getLabels()))
+                        .addOwnerReferencesItem(OperatorNames.ownerReference(dataCenter));
+                V1ConfigMap configMap1 = new V1ConfigMap()
+                        .metadata(meta)
+                        .data(configMap.getData() == null ? null : new HashMap<>(configMap.getData()))
+                        .binaryData(configMap.getBinaryData() == null ? null : new HashMap<>(configMap.getBinaryData()));
+                return new ConfigMapVolumeMountBuilder(configMap1, dataCenterSpec.getUserConfigMapVolumeSource(), "user-config-volume", "/tmp/user-config");
+            });
         }
 
         public String fingerPrint() {
@@ -764,6 +1054,17 @@ public class DataCenterUpdateAction {
                     );
         }
 
+        /**
+         * @return the sorted names of the racks having joined replicas, which are the seeds of buildConfigMapSeed.
+         */
+        public String seedRacks() {
+            return dataCenterStatus.getRackStatuses().stream()
+                    .filter(rackStatus -> rackStatus.getJoinedReplicas() > 0)
+                    .map(RackStatus::getName)
+                    .sorted()
+                    .collect(Collectors.joining(","));
+        }
+
         /**
          * Mutable configmap for seeds, one for all racks, does not require a rolling restart.
          * @return
@@ -1114,7 +1415,7 @@ public class DataCenterUpdateAction {
          * configuration that is specific to rack. For the moment, an update of it does not trigger a restart
          * One immutable configmap per rack
          */
-        private ConfigMapVolumeMountBuilder buildConfigMapRack(final String rack) throws IOException, ApiException {
+        private ConfigMapVolumeMountBuilder buildConfigMapRack(final String rack, final boolean concurrentBootstrap) throws IOException, ApiException {
             final V1ConfigMap configMap = new V1ConfigMap().metadata(rackObjectMeta(rack, OperatorNames.rackConfig(dataCenter, rack)));
             final V1ConfigMapVolumeSource volumeSource = new V1ConfigMapVolumeSource().name(configMap.getMetadata().getName());
 
@@ -1128,9 +1429,15 @@ public class DataCenterUpdateAction {
             rackDcProperties.store(writer, "generated by cassandra-operator");
             // Set default Dc:rack in cassandra-topology.properties to avoid inconsistent nodetool status when a node is down.
             // This is because GossipingPropertyFileSnitch inherits from PropertyFileSnitch
-            return new ConfigMapVolumeMountBuilder(configMap, volumeSource, "operator-config-volume-rack", "/tmp/operator-config-rack")
+            final ConfigMapVolumeMountBuilder configMapVolumeMountBuilder =
+                    new ConfigMapVolumeMountBuilder(configMap, volumeSource, "operator-config-volume-rack", "/tmp/operator-config-rack")
                     .addFile("cassandra-rackdc.properties", writer.toString())
                     .addFile("cassandra-topology.properties", String.format(Locale.ROOT, "default=%s:%s", dataCenterSpec.getDatacenterName(), rack));
+            // allow the nodes of a scale up wave to bootstrap at the same time, only read by the joining nodes.
+            // The file is always declared in the volume items, because a scale up only patches the statefulset replicas
+            // and the pod template would not mount a key added afterwards.
+            configMapVolumeMountBuilder.addFile(CONCURRENT_BOOTSTRAP_OPTIONS, concurrentBootstrap ? "-Dcassandra.consistent.rangemovement=false\n" : "");
+            return configMapVolumeMountBuilder;
         }
 
         public V1Secret buildSecretKeystore(X509CertificateAndPrivateKey x509CertificateAndPrivateKey) throws GeneralSecurityException, IOException, OperatorCreationException {
@@ -1527,6 +1834,9 @@ public class DataCenterUpdateAction {
                             .serviceName(OperatorNames.nodesService(dataCenter))
                             .replicas(replicas)
                             .selector(new V1LabelSelector().matchLabels(rackLabels))
+                            .updateStrategy(new V1StatefulSetUpdateStrategy()
+                                    .type("RollingUpdate")
+                                    .rollingUpdate(new V1RollingUpdateStatefulSetStrategy().partition(0)))
                             .template(new V1PodTemplateSpec()
                                     .metadata(templateMetadata)
                                     .spec(podSpec)
@@ -1740,6 +2050,23 @@ public class DataCenterUpdateAction {
                     Optional.ofNullable(status.getUpdatedReplicas()).orElse(0) < status.getReplicas());
         }
 
+        public int partition() {
+            return sts.map(s -> s.getSpec().getUpdateStrategy())
+                    .map(V1StatefulSetUpdateStrategy::getRollingUpdate)
+                    .map(V1RollingUpdateStatefulSetStrategy::getPartition)
+                    .orElse(0);
+        }
+
+        /**
+         * @return true if the statefulset has the config fingerprint (if known) and all its pods are released for update.
+         */
+        public boolean isUpdatedTo(String configFingerprint) {
+            if (!sts.isPresent())
+                return false;
+            final String stsFingerprint = sts.get().getSpec().getTemplate().getMetadata().getAnnotations().get("configmap-fingerprint");
+            return partition() <= 0 && (configFingerprint == null || configFingerprint.equals(stsFingerprint));
+        }
+
         public boolean isScalingUp() {
             V1StatefulSetStatus status = sts.get().getStatus();
             return status.getReplicas() < sts.get().getSpec().getReplicas();
@@ -1780,20 +2107,35 @@ public class DataCenterUpdateAction {
         }
 
         public Zones(List<V1Node> nodes, Map<String, V1StatefulSet> existingStatefulSetsByZone) {
+            this(countNodesByZone(nodes), existingStatefulSetsByZone);
+        }
+
+        /**
+         * @param nodesByZone the number of nodes by zone name, as maintained by the NodeCache
+         * @param existingStatefulSetsByZone
+         */
+        public Zones(Map<String, Integer> nodesByZone, Map<String, V1StatefulSet> existingStatefulSetsByZone) {
+            if (nodesByZone.containsKey(NodeCache.NO_ZONE)) {
+                throw new RuntimeException(new StrapkopException(String.format("missing label %s on %d node(s)", OperatorLabels.ZONE, nodesByZone.get(NodeCache.NO_ZONE))));
+            }
+            for (Map.Entry<String, Integer> entry : nodesByZone.entrySet()) {
+                Zone zone = new Zone(entry.getKey());
+                zone.size = entry.getValue();
+                zone.setSts(Optional.ofNullable(existingStatefulSetsByZone.get(entry.getKey())));
+                zones.put(entry.getKey(), zone);
+            }
+        }
+
+        private static Map<String, Integer> countNodesByZone(List<V1Node> nodes) {
+            Map<String, Integer> nodesByZone = new LinkedHashMap<>();
             for(V1Node node : nodes) {
                 String zoneName = node.getMetadata().getLabels().get(OperatorLabels.ZONE);
                 if (zoneName == null) {
                     throw new RuntimeException(new StrapkopException(String.format("missing label %s on node %s", OperatorLabels.ZONE, node.getMetadata().getName())));
                 }
-                zones.compute(zoneName, (k,z) -> {
-                    if (z == null) {
-                        z = new Zone(zoneName);
-                    }
-                    z.size++;
-                    z.setSts(Optional.ofNullable(existingStatefulSetsByZone.get(zoneName)));
-                    return z;
-                });
+                nodesByZone.merge(zoneName, 1, Integer::sum);
             }
+            return nodesByZone;
         }
 
         public int totalNodes() {
@@ -1813,11 +2155,20 @@ public class DataCenterUpdateAction {
         }
 
         public Optional<Zone> nextToScalueUp() {
-            return (totalNodes() == totalReplicas()) ? Optional.empty() : zones.values().stream()
+            return nextToScaleUp(1).stream().findFirst();
+        }
+
+        /**
+         * @return up to count distinct zones where to add a replica, preferred zones first.
+         */
+        public List<Zone> nextToScaleUp(int count) {
+            return (totalNodes() == totalReplicas()) ? Collections.emptyList() : zones.values().stream()
                     // filter-out full nodes
                     .filter(z -> z.freeNodeCount() > 0)
-                    // select the preferred zone based on some priorities
-                    .min(Zone.scaleComparator);
+                    // select the preferred zones based on some priorities
+                    .sorted(Zone.scaleComparator)
+                    .limit(count)
+                    .collect(Collectors.toList());
         }
 
         public Optional<Zone> nextToScaleDown() {
@@ -1866,7 +2217,10 @@ public class DataCenterUpdateAction {
                 podStatuses.put(pod.getName(), elassandraNodeStatusCache.getOrDefault(pod, ElassandraNodeStatus.UNKNOWN));
             }
         }
-        dataCenterStatus.setRackStatuses(Lists.newArrayList(rackStatusMap.values()));
+        // sorted by rack name for a stable status, unchanged statuses are not written
+        List<RackStatus> rackStatuses = Lists.newArrayList(rackStatusMap.values());
+        rackStatuses.sort(Comparator.comparing(RackStatus::getName));
+        dataCenterStatus.setRackStatuses(rackStatuses);
         dataCenterStatus.setElassandraNodeStatuses(podStatuses);
 
         // update dc status
@@ -1,9 +1,12 @@
 package com.strapdata.strapkop.reconcilier;
 
+import com.strapdata.model.ClusterKey;
 import com.strapdata.model.Key;
 import com.strapdata.model.k8s.cassandra.DataCenterPhase;
 import com.strapdata.model.k8s.cassandra.DataCenterStatus;
+import com.strapdata.strapkop.OperatorConfig;
 import com.strapdata.strapkop.k8s.K8sResourceUtils;
+import com.strapdata.strapkop.pipeline.WorkQueue;
 import com.strapdata.strapkop.plugins.PluginRegistry;
 import io.kubernetes.client.ApiException;
 import io.kubernetes.client.apis.CoreV1Api;
@@ -23,37 +26,58 @@ public class DataCenterUpdateReconcilier extends Reconcilier<Key> {
     
     private final ApplicationContext context;
     private final K8sResourceUtils k8sResourceUtils;
+    private final CoreV1Api coreApi;
 
     private final PluginRegistry pluginRegistry;
+    private final WorkQueue workQueue;
+    private final OperatorConfig operatorConfig;
 
     public DataCenterUpdateReconcilier(final ApplicationContext context,
                                        final K8sResourceUtils k8sResourceUtils,
                                        final CoreV1Api coreApi,
-                                       final PluginRegistry pluginRegistry) {
+                                       final PluginRegistry pluginRegistry,
+                                       final WorkQueue workQueue,
+                                       final OperatorConfig operatorConfig) {
         this.context = context;
         this.k8sResourceUtils = k8sResourceUtils;
+        this.coreApi = coreApi;
         this.pluginRegistry = pluginRegistry;
+        this.workQueue = workQueue;
+        this.operatorConfig = operatorConfig;
     }
 
     @Override
     public Completable reconcile(final Key key) throws ApiException {
         // this is a "read-before-write" to ensure we are processing the latest resource version (otherwise, status update will failed with a 409 conflict)
-        // TODO: maybe we can use the datacenter cache in a smart way.
-        //      ...something like : when we update the dc status, we notify the cache to invalidate the data until we receive an update
-        return k8sResourceUtils.readDatacenter(key)
+        // the datacenter cache is used when it includes our last status update, otherwise the datacenter is read from the api.
+        return k8sResourceUtils.readCachedDatacenter(key)
+                .toMaybe()
+                // the datacenter was deleted, nothing to reconcile (and nothing to retry)
+                .onErrorComplete(t -> t instanceof ApiException && ((ApiException) t).getCode() == 404)
                 .flatMapCompletable(dc -> {
                     if (dc.getStatus() != null && Objects.equals(dc.getStatus().getPhase(), DataCenterPhase.EXECUTING_TASK)) {
                         logger.debug("do not reconcile datacenter as a task is already being executed ({})", dc.getStatus().getCurrentTask());
                         return Completable.complete();
                     }
+                    // status changes of the datacenter action and plugins are written once at the end of the reconciliation
+                    final DataCenterStatusAccumulator statusAccumulator = new DataCenterStatusAccumulator(k8sResourceUtils,
+                            coreApi.getApiClient().getJSON().getGson(), dc);
                     try {
                         // call the statefullset reconciliation  (before scaling up/down to properly stream data according to the adjusted RF)
                         logger.trace("processing a dc reconciliation request for {} in thread {}", dc.getMetadata().getName(), Thread.currentThread().getName());
 
-                        return context.createBean(DataCenterUpdateAction.class, dc)
-                                .reconcileDataCenter()
+                        final DataCenterUpdateAction action = context.createBean(DataCenterUpdateAction.class, dc);
+                        return action.reconcileDataCenter()
                                 .andThen(Completable.mergeArray(pluginRegistry.reconcileAll(dc)))
-                                .andThen(k8sResourceUtils.updateDataCenterStatus(dc).ignoreElement());
+                                .andThen(statusAccumulator.flush())
+                                .doOnComplete(() -> {
+                                    // no event will signal the end of a deferred step, so check it again later
+                                    if (action.isRequeueRequested()) {
+                                        final long delayMs = operatorConfig.getWorkQueue().getRequeueDelayMs();
+                                        logger.debug("requeuing datacenter={} in {}ms", key.getName(), delayMs);
+                                        workQueue.submitAfter(new ClusterKey(dc.getSpec().getClusterName(), key.getNamespace()), key, reconcile(key), delayMs);
+                                    }
+                                });
                     } catch (Exception e) {
                         logger.error("an error occurred while processing DataCenter update reconciliation for {}", key.getName(), e);
                         if (dc != null) {
@@ -62,9 +86,11 @@ public class DataCenterUpdateReconcilier extends Reconcilier<Key> {
                             }
                             dc.getStatus().setPhase(DataCenterPhase.ERROR);
                             dc.getStatus().setLastMessage(e.getMessage());
-                            k8sResourceUtils.updateDataCenterStatus(dc);
                         }
-                        throw e;
+                        return statusAccumulator.flush()
+                                .doOnError(t -> logger.warn("failed to update the status of datacenter={}", key.getName(), t))
+                                .onErrorComplete()
+                                .andThen(Completable.error(e));
                     }
                 })
                 .observeOn(Schedulers.io());
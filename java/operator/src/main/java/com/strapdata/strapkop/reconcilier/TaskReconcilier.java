@@ -133,7 +133,7 @@ public abstract class TaskReconcilier extends Reconcilier<Tuple2<TaskReconcilier
                 task.getMetadata().getNamespace()
         );
         
-        return k8sResourceUtils.readDatacenter(dcKey);
+        return k8sResourceUtils.readCachedDatacenter(dcKey);
     }
     
     boolean ensureDcIsReady(Task task, DataCenter dc) {
@@ -2,12 +2,16 @@ package com.strapdata.strapkop.sidecar;
 
 import com.strapdata.model.backup.BackupArguments;
 import com.strapdata.model.sidecar.BackupResponse;
+import com.strapdata.model.sidecar.ElassandraEndpointStatus;
+import com.strapdata.model.sidecar.ElassandraNodeHealth;
 import com.strapdata.model.sidecar.ElassandraNodeStatus;
+import io.micronaut.core.type.Argument;
 import io.micronaut.http.client.RxHttpClient;
 import io.reactivex.Completable;
 import io.reactivex.Single;
 
 import java.net.URL;
+import java.util.List;
 
 import static io.micronaut.http.HttpRequest.GET;
 import static io.micronaut.http.HttpRequest.POST;
@@ -15,36 +19,47 @@ import static io.micronaut.http.HttpRequest.POST;
 /**
  * Currently @Client annotation advice that generates the client code from an interface is totally static and cannot
  * be used to configure client with dynamic urls. See {@link io.micronaut.http.client.interceptor.HttpClientIntroductionAdvice}
+ *
+ * Requests are sent with absolute URIs through the http client shared by all sidecars, which pools connections per host.
  */
 public class SidecarClient {
 
-    private RxHttpClient httpClient;
+    private final RxHttpClient httpClient;
+    private final String baseUrl;
     
-    public SidecarClient(URL url) {
-        httpClient = RxHttpClient.create(url);
+    public SidecarClient(URL url, RxHttpClient httpClient) {
+        this.httpClient = httpClient;
+        this.baseUrl = url.toExternalForm();
+    }
+    
+    /**
+     * @return the sidecar base url, addressing the pod IP when known
+     */
+    public String getBaseUrl() {
+        return baseUrl;
     }
     
     public Single<ElassandraNodeStatus> status() {
-        return httpClient.retrieve(GET("/status"), ElassandraNodeStatus.class).singleOrError();
+        return httpClient.retrieve(GET(baseUrl + "/status"), ElassandraNodeStatus.class).singleOrError();
     }
     
+    public Single<List<ElassandraEndpointStatus>> endpoints() {
+        return httpClient.retrieve(GET(baseUrl + "/status/endpoints"), Argument.listOf(ElassandraEndpointStatus.class)).singleOrError();
+    }
+
+    public Single<ElassandraNodeHealth> health() {
+        return httpClient.retrieve(GET(baseUrl + "/status/health"), ElassandraNodeHealth.class).singleOrError();
+    }
+
     public Completable decommission() {
-        return httpClient.exchange(POST("/operations/decommission", "")).ignoreElements();
+        return httpClient.exchange(POST(baseUrl + "/operations/decommission", "")).ignoreElements();
     }
     
     public Completable cleanup() {
-        return httpClient.exchange(POST("/operations/cleanup", "")).ignoreElements();
+        return httpClient.exchange(POST(baseUrl + "/operations/cleanup", "")).ignoreElements();
     }
     
     public Single<BackupResponse> backup(BackupArguments backupArguments) {
-        return httpClient.retrieve(POST("/backups", backupArguments), BackupResponse.class).singleOrError();
-    }
-
-    public boolean isRunning() {
-        return httpClient.isRunning();
-    }
-    
-    public void close() {
-        httpClient.close();
+        return httpClient.retrieve(POST(baseUrl + "/backups", backupArguments), BackupResponse.class).singleOrError();
     }
 }
@@ -1,20 +1,32 @@
 package com.strapdata.strapkop.sidecar;
 
+import com.strapdata.model.Key;
+import com.strapdata.strapkop.OperatorConfig;
+import com.strapdata.strapkop.cache.ElassandraPodCache;
 import com.strapdata.strapkop.cache.SidecarConnectionCache;
 import com.strapdata.strapkop.event.ElassandraPod;
+import io.kubernetes.client.models.V1Pod;
+import io.kubernetes.client.models.V1PodStatus;
+import io.micronaut.http.client.DefaultHttpClient;
+import io.micronaut.http.client.DefaultHttpClientConfiguration;
+import io.micronaut.http.client.RxHttpClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.PreDestroy;
 import javax.inject.Singleton;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.time.Duration;
+import java.util.Optional;
 
 /**
  * This is a sidecar client factory that caches client and reuse it as possible.
  *
- * The periodic node status checker should invalidate cache entry that are not working.
- * Java DNS caching has been disabled. If a pod is restarted and its IP change,
- * the next nodeStatus check would invalidate the cache (calling invalidateClient()), and the next call to the factory would recreate the client.
+ * All sidecar clients share a single http client, and so its event loop and its connection pools (one per sidecar
+ * host, with keep-alive). Sidecars are addressed by pod IP when the pod cache knows it, so a pod restarted with a new
+ * IP gets a new endpoint without closing anything : a cached client is refreshed when the pod IP changes, and clients
+ * invalidated on error are only dropped from the cache. The pod FQDN is used while the pod IP is not known.
  */
 @Singleton
 public class SidecarClientFactory {
@@ -22,9 +34,23 @@ public class SidecarClientFactory {
     static final Logger logger = LoggerFactory.getLogger(SidecarClientFactory.class);
     
     private final SidecarConnectionCache sidecarConnectionCache;
+    private final ElassandraPodCache elassandraPodCache;
+    private final OperatorConfig.SidecarConfig config;
+    private final RxHttpClient httpClient;
     
-    public SidecarClientFactory(SidecarConnectionCache sidecarConnectionCache) {
+    public SidecarClientFactory(SidecarConnectionCache sidecarConnectionCache, ElassandraPodCache elassandraPodCache, OperatorConfig operatorConfig) throws MalformedURLException {
         this.sidecarConnectionCache = sidecarConnectionCache;
+        this.elassandraPodCache = elassandraPodCache;
+        this.config = operatorConfig.getSidecar();
+        
+        final DefaultHttpClientConfiguration configuration = new DefaultHttpClientConfiguration();
+        configuration.setConnectTimeout(Duration.ofMillis(config.getConnectTimeoutMs()));
+        configuration.setReadTimeout(Duration.ofMillis(config.getReadTimeoutMs()));
+        configuration.setNumOfThreads(config.getThreads());
+        configuration.getConnectionPoolConfiguration().setEnabled(true);
+        configuration.getConnectionPoolConfiguration().setMaxConnections(config.getMaxConnectionsPerHost());
+        // requests carry absolute URIs, the base url is never used
+        this.httpClient = new DefaultHttpClient(new URL("http://localhost:" + config.getPort()), configuration);
     }
     
     /**
@@ -32,30 +58,40 @@ public class SidecarClientFactory {
      */
     public SidecarClient clientForPod(final ElassandraPod pod) throws MalformedURLException {
         
+        final String baseUrl = "http://" + podIp(pod).orElse(pod.getFqdn()) + ":" + config.getPort();
         SidecarClient sidecarClient = sidecarConnectionCache.get(pod);
         
-        if (sidecarClient != null && sidecarClient.isRunning()) {
+        if (sidecarClient != null && sidecarClient.getBaseUrl().equals(baseUrl)) {
             logger.debug("hitting sidecar client cache for pod={}", pod.getName());
             return sidecarClient;
         }
 
-        logger.debug("creating sidecar for pod={}", pod.getName());
-        sidecarClient = new SidecarClient(new URL("http://" + pod.getFqdn() + ":8080"));
+        logger.debug("creating sidecar client for pod={} url={}", pod.getName(), baseUrl);
+        sidecarClient = new SidecarClient(new URL(baseUrl), httpClient);
         sidecarConnectionCache.put(pod, sidecarClient);
         return sidecarClient;
     }
     
     
     /**
-     * Remove and close a sidecar client from cache
+     * Remove a sidecar client from cache, so that its endpoint is resolved again on the next call.
      */
     public void invalidateClient(ElassandraPod pod) {
         logger.debug("invalidating cached sidecar client for pod={}", pod.getName());
+        sidecarConnectionCache.remove(pod);
+    }
     
-        final SidecarClient sidecarClient = sidecarConnectionCache.remove(pod);
+    @PreDestroy
+    public void close() {
+        httpClient.close();
+    }
     
-        if (sidecarClient != null) {
-            sidecarClient.close();
+    private Optional<String> podIp(final ElassandraPod pod) {
+        if (!elassandraPodCache.isSynced()) {
+            return Optional.empty();
         }
+        return Optional.ofNullable(elassandraPodCache.get(new Key(pod.getName(), pod.getNamespace())))
+                .map(V1Pod::getStatus)
+                .map(V1PodStatus::getPodIP);
     }
 }
@@ -1,8 +1,10 @@
 package com.strapdata.strapkop.ssl;
 
 
+import com.strapdata.model.Key;
 import com.strapdata.strapkop.OperatorConfig;
 import com.strapdata.strapkop.StrapkopException;
+import com.strapdata.strapkop.cache.SecretCache;
 import com.strapdata.strapkop.k8s.OperatorLabels;
 import com.strapdata.strapkop.ssl.utils.CertManager;
 import com.strapdata.strapkop.ssl.utils.X509CertificateAndPrivateKey;
@@ -60,6 +62,12 @@ public class AuthorityManager {
     @Inject
     private OperatorConfig config;
 
+    @Inject
+    private SecretCache secretCache;
+
+    // CA loaded from the secrets having these resource versions, so the CA is only reloaded when a secret changes
+    private volatile LoadedCa loadedCa = null;
+
     /**
      * CA secret with public certificate, mounted by all pods
      * @return
@@ -132,10 +140,23 @@ public class AuthorityManager {
      * @throws ApiException 404 if it does not exists
      */
     public X509CertificateAndPrivateKey loadFromSecret() throws StrapkopException, ApiException {
-        final String certs = loadPublicCaFromSecret();
-        final String key = loadPrivateCaFromSecret();
-    
-        return new X509CertificateAndPrivateKey(certs, key);
+        final V1Secret publicSecret = readSecret(getPublicCaSecretName());
+        final V1Secret privateSecret = readSecret(getPrivateCaSecretName());
+
+        final LoadedCa loaded = loadedCa;
+        if (loaded != null &&
+                loaded.publicResourceVersion.equals(publicSecret.getMetadata().getResourceVersion()) &&
+                loaded.privateResourceVersion.equals(privateSecret.getMetadata().getResourceVersion())) {
+            return loaded.ca;
+        }
+
+        final X509CertificateAndPrivateKey ca = new X509CertificateAndPrivateKey(
+                loadItemFromSecret(publicSecret, SECRET_CACERT_PEM),
+                loadItemFromSecret(privateSecret, SECRET_CA_KEY));
+        if (publicSecret.getMetadata().getResourceVersion() != null && privateSecret.getMetadata().getResourceVersion() != null) {
+            loadedCa = new LoadedCa(publicSecret.getMetadata().getResourceVersion(), privateSecret.getMetadata().getResourceVersion(), ca);
+        }
+        return ca;
     }
 
     public Single<X509CertificateAndPrivateKey> loadFromSecretSingle() {
@@ -148,20 +169,37 @@ public class AuthorityManager {
     }
     
     public String loadPrivateCaFromSecret() throws StrapkopException, ApiException {
-        return loadItemFromSecret(getPrivateCaSecretName(), SECRET_CA_KEY);
+        return loadItemFromSecret(readSecret(getPrivateCaSecretName()), SECRET_CA_KEY);
     }
     
     public String loadPublicCaFromSecret() throws StrapkopException, ApiException {
-        return loadItemFromSecret(getPublicCaSecretName(), SECRET_CACERT_PEM);
+        return loadItemFromSecret(readSecret(getPublicCaSecretName()), SECRET_CACERT_PEM);
+    }
+
+    // read a CA secret from the watched secrets when available, or from the k8s api otherwise (e.g. during preflight)
+    private V1Secret readSecret(String secretName) throws ApiException {
+        final V1Secret cached = secretCache.isSynced() ? secretCache.get(new Key(secretName, config.getNamespace())) : null;
+        return (cached != null) ? cached : coreApi.readNamespacedSecret(secretName, config.getNamespace(), null, null, null);
     }
     
-    private String loadItemFromSecret(String publicCaSecretName, String secretCacertPem) throws StrapkopException, ApiException {
-        V1Secret publicSecret = coreApi.readNamespacedSecret(publicCaSecretName, config.getNamespace(), null, null, null);
-        final byte[] certsBytes = publicSecret.getData().get(secretCacertPem);
-        if (certsBytes == null) {
-            throw new StrapkopException(MessageFormat.format("missing file {} from secret {} in namespace {}", secretCacertPem, publicCaSecretName, config.getNamespace()));
+    private String loadItemFromSecret(V1Secret secret, String item) throws StrapkopException {
+        final byte[] bytes = (secret.getData() == null) ? null : secret.getData().get(item);
+        if (bytes == null) {
+            throw new StrapkopException(MessageFormat.format("missing file {0} from secret {1} in namespace {2}", item, secret.getMetadata().getName(), config.getNamespace()));
+        }
+        return new String(bytes);
+    }
+
+    private static class LoadedCa {
+        final String publicResourceVersion;
+        final String privateResourceVersion;
+        final X509CertificateAndPrivateKey ca;
+
+        LoadedCa(String publicResourceVersion, String privateResourceVersion, X509CertificateAndPrivateKey ca) {
+            this.publicResourceVersion = publicResourceVersion;
+            this.privateResourceVersion = privateResourceVersion;
+            this.ca = ca;
         }
-        return new String(certsBytes);
     }
     
     /**
@@ -9,6 +9,7 @@ import java.security.PrivateKey;
 import java.security.cert.CertificateEncodingException;
 import java.security.cert.X509Certificate;
 import java.security.spec.PKCS8EncodedKeySpec;
+import java.util.Collections;
 import java.util.List;
 
 public class X509CertificateAndPrivateKey {
@@ -16,6 +17,11 @@ public class X509CertificateAndPrivateKey {
     
     String key;
     
+    // parsed on first use and kept until the certs or the key change
+    private List<X509Certificate> certificateChain = null;
+    private Option<String> privateKeyPassword = null;
+    private PKCS8EncodedKeySpec privateKey = null;
+    
     public X509CertificateAndPrivateKey() {
     }
     
@@ -24,8 +30,12 @@ public class X509CertificateAndPrivateKey {
         this.key = key;
     }
     
-    public PKCS8EncodedKeySpec getPrivateKey(Option<String> password) throws IOException, GeneralSecurityException {
-        return PemConverter.readPrivateKey(key, password);
+    public synchronized PKCS8EncodedKeySpec getPrivateKey(Option<String> password) throws IOException, GeneralSecurityException {
+        if (privateKey == null || !password.equals(privateKeyPassword)) {
+            privateKey = PemConverter.readPrivateKey(key, password);
+            privateKeyPassword = password;
+        }
+        return privateKey;
     }
     
     public String getPrivateKeyAsString() {
@@ -36,22 +46,27 @@ public class X509CertificateAndPrivateKey {
         return certs;
     }
     
-    public List<X509Certificate> getCertificateChain() throws IOException, GeneralSecurityException {
-        return PemConverter.readCertificateChain(this.certs);
+    public synchronized List<X509Certificate> getCertificateChain() throws IOException, GeneralSecurityException {
+        if (certificateChain == null) {
+            certificateChain = Collections.unmodifiableList(PemConverter.readCertificateChain(this.certs));
+        }
+        return certificateChain;
     }
     
     public X509Certificate getCertificate() throws IOException, GeneralSecurityException {
-        List<X509Certificate> certChain = PemConverter.readCertificateChain(this.certs);
+        List<X509Certificate> certChain = getCertificateChain();
         return certChain.get(certChain.size() - 1);
     }
     
-    public X509CertificateAndPrivateKey withPrivateKey(PrivateKey key, char[] password) throws IOException, OperatorCreationException {
+    public synchronized X509CertificateAndPrivateKey withPrivateKey(PrivateKey key, char[] password) throws IOException, OperatorCreationException {
         this.key = PemConverter.writePrivateKey(key, password);
+        this.privateKey = null;
         return this;
     }
     
-    public X509CertificateAndPrivateKey withCertificates(List<X509Certificate> certs) throws IOException, CertificateEncodingException {
+    public synchronized X509CertificateAndPrivateKey withCertificates(List<X509Certificate> certs) throws IOException, CertificateEncodingException {
         this.certs = PemConverter.writeCertificates(certs);
+        this.certificateChain = null;
         return this;
     }
     
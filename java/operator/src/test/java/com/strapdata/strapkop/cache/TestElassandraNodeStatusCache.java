@@ -10,6 +10,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class TestElassandraNodeStatusCache extends ElassandraNodeStatusCache {
     final String clusterName = "cl1";
@@ -21,13 +22,14 @@ public class TestElassandraNodeStatusCache extends ElassandraNodeStatusCache {
     final int rack2Normal = 1;
     final String rack3 = "rack3";
     final int rack3Normal = 0;
+    DataCenter dc;
 
     @BeforeEach
     public void init() {
         V1ObjectMeta v1ObjectMeta = new V1ObjectMeta();
         v1ObjectMeta.setNamespace("default");
         v1ObjectMeta.setName("elassandra-"+clusterName+"-"+datacenterName);
-        DataCenter dc = new DataCenter()
+        dc = new DataCenter()
                 .setSpec(new DataCenterSpec()
                         .setClusterName(clusterName)
                         .setDatacenterName(datacenterName))
@@ -50,13 +52,32 @@ public class TestElassandraNodeStatusCache extends ElassandraNodeStatusCache {
 
     @Test
     public void testInvalidRack() {
-        assertEquals(0, countNodesInStateForRack("unknown", ElassandraNodeStatus.UNKNOWN));
+        assertEquals(0, countNodesInStateForRack(dc, "unknown", ElassandraNodeStatus.UNKNOWN));
     }
 
     @Test
     public void testCount() {
-        assertEquals(rack1Normal, countNodesInStateForRack(rack1, ElassandraNodeStatus.NORMAL));
-        assertEquals(rack2Normal, countNodesInStateForRack(rack2, ElassandraNodeStatus.NORMAL));
-        assertEquals(rack3Normal, countNodesInStateForRack(rack3, ElassandraNodeStatus.NORMAL));
+        assertEquals(rack1Normal, countNodesInStateForRack(dc, rack1, ElassandraNodeStatus.NORMAL));
+        assertEquals(rack2Normal, countNodesInStateForRack(dc, rack2, ElassandraNodeStatus.NORMAL));
+        assertEquals(rack3Normal, countNodesInStateForRack(dc, rack3, ElassandraNodeStatus.NORMAL));
+    }
+
+    @Test
+    public void testCountFollowsStatusChanges() {
+        ElassandraPod pod = ElassandraPod.fromName(dc, "elassandra-cl1-dc1-rack3-0");
+        put(pod, ElassandraNodeStatus.JOINING);
+        assertEquals(0, countNodesInStateForRack(dc, rack3, ElassandraNodeStatus.NORMAL));
+        put(pod, ElassandraNodeStatus.NORMAL);
+        assertEquals(1, countNodesInStateForRack(dc, rack3, ElassandraNodeStatus.NORMAL));
+        assertEquals(0, countNodesInStateForRack(dc, rack3, ElassandraNodeStatus.JOINING));
+        remove(pod);
+        assertEquals(0, countNodesInStateForRack(dc, rack3, ElassandraNodeStatus.NORMAL));
+    }
+
+    @Test
+    public void testPurgeDataCenter() {
+        purgeDataCenter(dc);
+        assertTrue(isEmpty());
+        assertEquals(0, countNodesInStateForRack(dc, rack1, ElassandraNodeStatus.NORMAL));
     }
 }
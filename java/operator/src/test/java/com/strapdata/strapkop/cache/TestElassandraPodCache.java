@@ -0,0 +1,39 @@
+package com.strapdata.strapkop.cache;
+
+import com.strapdata.model.Key;
+import io.kubernetes.client.models.V1ObjectMeta;
+import io.kubernetes.client.models.V1Pod;
+import io.kubernetes.client.models.V1PodStatus;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+public class TestElassandraPodCache {
+
+    private static V1Pod pod(String name, String ip, String phase) {
+        return new V1Pod()
+                .metadata(new V1ObjectMeta().name(name).namespace("default"))
+                .status(new V1PodStatus().podIP(ip).phase(phase));
+    }
+
+    @Test
+    public void testGetByPodIp() {
+        ElassandraPodCache cache = new ElassandraPodCache();
+        cache.put(new Key("elassandra-cl1-dc1-0-0", "default"), pod("elassandra-cl1-dc1-0-0", "10.0.0.1", "Running"));
+        cache.put(new Key("elassandra-cl1-dc1-1-0", "default"), pod("elassandra-cl1-dc1-1-0", null, "Pending"));
+
+        assertEquals("elassandra-cl1-dc1-0-0", cache.getByPodIp("default", "10.0.0.1").get().getMetadata().getName());
+        assertFalse(cache.getByPodIp("other", "10.0.0.1").isPresent());
+
+        // IP assigned then reused by a new pod while the previous one is terminated
+        cache.put(new Key("elassandra-cl1-dc1-1-0", "default"), pod("elassandra-cl1-dc1-1-0", "10.0.0.2", "Running"));
+        assertEquals("elassandra-cl1-dc1-1-0", cache.getByPodIp("default", "10.0.0.2").get().getMetadata().getName());
+        cache.put(new Key("elassandra-cl1-dc1-0-0", "default"), pod("elassandra-cl1-dc1-0-0", "10.0.0.2", "Failed"));
+        assertEquals("elassandra-cl1-dc1-1-0", cache.getByPodIp("default", "10.0.0.2").get().getMetadata().getName());
+        assertFalse(cache.getByPodIp("default", "10.0.0.1").isPresent());
+
+        cache.remove(new Key("elassandra-cl1-dc1-1-0", "default"));
+        assertEquals("elassandra-cl1-dc1-0-0", cache.getByPodIp("default", "10.0.0.2").get().getMetadata().getName());
+    }
+}
@@ -0,0 +1,54 @@
+package com.strapdata.strapkop.cache;
+
+import com.google.common.collect.ImmutableMap;
+import com.strapdata.model.Key;
+import com.strapdata.strapkop.k8s.OperatorLabels;
+import io.kubernetes.client.models.V1Node;
+import io.kubernetes.client.models.V1ObjectMeta;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TestNodeCache {
+
+    private static V1Node node(String name, String zone) {
+        V1ObjectMeta meta = new V1ObjectMeta().name(name);
+        if (zone != null) {
+            meta.setLabels(ImmutableMap.of(OperatorLabels.ZONE, zone));
+        }
+        return new V1Node().metadata(meta);
+    }
+
+    @Test
+    public void testCountNodesByZone() {
+        NodeCache cache = new NodeCache();
+        cache.put(new Key("n1", null), node("n1", "a"));
+        cache.put(new Key("n2", null), node("n2", "a"));
+        cache.put(new Key("n3", null), node("n3", "b"));
+        assertEquals(ImmutableMap.of("a", 2, "b", 1), cache.countNodesByZone());
+
+        // node relabeled then removed
+        cache.put(new Key("n2", null), node("n2", "b"));
+        assertEquals(ImmutableMap.of("a", 1, "b", 2), cache.countNodesByZone());
+        cache.remove(new Key("n1", null));
+        assertEquals(ImmutableMap.of("b", 2), cache.countNodesByZone());
+
+        cache.put(new Key("n4", null), node("n4", null));
+        assertEquals(1, (int) cache.countNodesByZone().get(NodeCache.NO_ZONE));
+    }
+
+    @Test
+    public void testReadOnlyViews() {
+        NodeCache cache = new NodeCache();
+        cache.put(new Key("n1", null), node("n1", "a"));
+        cache.put(new Key("n2", null), node("n2", "b"));
+
+        // removing through a view would bypass the indexes
+        assertThrows(UnsupportedOperationException.class, () -> cache.keySet().remove(new Key("n1", null)));
+        assertThrows(UnsupportedOperationException.class, () -> cache.keySet().removeIf(key -> key.getName().equals("n1")));
+        assertThrows(UnsupportedOperationException.class, () -> cache.values().clear());
+        assertThrows(UnsupportedOperationException.class, () -> cache.entrySet().iterator().remove());
+        assertEquals(ImmutableMap.of("a", 1, "b", 1), cache.countNodesByZone());
+    }
+}
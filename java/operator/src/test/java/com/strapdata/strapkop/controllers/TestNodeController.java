@@ -0,0 +1,67 @@
+package com.strapdata.strapkop.controllers;
+
+import com.google.common.collect.ImmutableMap;
+import com.strapdata.model.ClusterKey;
+import com.strapdata.model.Key;
+import com.strapdata.model.sidecar.ElassandraNodeStatus;
+import com.strapdata.strapkop.cache.ElassandraNodeStatusCache;
+import com.strapdata.strapkop.cache.ElassandraPodCache;
+import com.strapdata.strapkop.event.ElassandraPod;
+import com.strapdata.strapkop.pipeline.WorkQueue;
+import com.strapdata.strapkop.reconcilier.DataCenterUpdateReconcilier;
+import io.kubernetes.client.ApiException;
+import io.kubernetes.client.models.V1ObjectMeta;
+import io.kubernetes.client.models.V1Pod;
+import io.kubernetes.client.models.V1PodStatus;
+import io.micronaut.http.HttpStatus;
+import io.reactivex.Completable;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class TestNodeController {
+
+    private static V1Pod pod(String name, String ip) {
+        return new V1Pod()
+                .metadata(new V1ObjectMeta().name(name).namespace("default"))
+                .status(new V1PodStatus().podIP(ip).phase("Running"));
+    }
+
+    @Test
+    public void testUpdateMixedBatch() throws ApiException {
+        NodeController controller = new NodeController();
+        controller.elassandraNodeStatusCache = new ElassandraNodeStatusCache();
+        controller.elassandraPodCache = new ElassandraPodCache();
+        controller.workQueue = mock(WorkQueue.class);
+        controller.dataCenterUpdateReconcilier = mock(DataCenterUpdateReconcilier.class);
+
+        controller.elassandraPodCache.put(new Key("elassandra-cl1-dc1-0-0", "default"), pod("elassandra-cl1-dc1-0-0", "10.0.0.1"));
+        controller.elassandraPodCache.put(new Key("elassandra-cl1-dc2-0-0", "default"), pod("elassandra-cl1-dc2-0-0", "10.0.0.2"));
+        // not an Elassandra pod name
+        controller.elassandraPodCache.put(new Key("foo", "default"), pod("foo", "10.0.0.3"));
+        controller.elassandraPodCache.setSynced(true);
+
+        Key dc1 = new Key("elassandra-cl1-dc1", "default");
+        Key dc2 = new Key("elassandra-cl1-dc2", "default");
+        when(controller.dataCenterUpdateReconcilier.reconcile(dc1)).thenThrow(new ApiException("dc1 not found"));
+        when(controller.dataCenterUpdateReconcilier.reconcile(dc2)).thenReturn(Completable.complete());
+
+        HttpStatus status = controller.updateBatch("default", ImmutableMap.of(
+                "10.0.0.1", ElassandraNodeStatus.NORMAL,
+                "10.0.0.3", ElassandraNodeStatus.DOWN,
+                "10.0.0.2", ElassandraNodeStatus.NORMAL));
+
+        assertEquals(HttpStatus.OK, status);
+        assertEquals(ElassandraNodeStatus.NORMAL, controller.elassandraNodeStatusCache.get(ElassandraPod.fromName("default", "elassandra-cl1-dc1-0-0")));
+        assertEquals(ElassandraNodeStatus.NORMAL, controller.elassandraNodeStatusCache.get(ElassandraPod.fromName("default", "elassandra-cl1-dc2-0-0")));
+        assertEquals(2, controller.elassandraNodeStatusCache.size());
+        // the failed reconciliation of dc1 does not prevent the one of dc2
+        verify(controller.workQueue, times(1)).submit(eq(new ClusterKey("cl1", "default")), eq(dc2), any(Completable.class));
+    }
+}
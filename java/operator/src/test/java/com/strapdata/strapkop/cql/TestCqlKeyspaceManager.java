@@ -0,0 +1,34 @@
+package com.strapdata.strapkop.cql;
+
+import com.google.common.collect.ImmutableMap;
+import com.strapdata.model.k8s.cassandra.DataCenter;
+import com.strapdata.model.k8s.cassandra.DataCenterSpec;
+import io.kubernetes.client.models.V1ObjectMeta;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class TestCqlKeyspaceManager {
+
+    private final DataCenter dc = new DataCenter()
+            .setMetadata(new V1ObjectMeta().name("elassandra-cl1-dc1").namespace("default"))
+            .setSpec(new DataCenterSpec().setClusterName("cl1").setDatacenterName("dc1").setReplicas(6));
+
+    @Test
+    public void testReplication() {
+        assertEquals(new CqlKeyspaceManager.Replication(3, true), CqlKeyspaceManager.replication(dc,
+                ImmutableMap.of("class", "org.apache.cassandra.locator.NetworkTopologyStrategy", "dc1", "3", "dc2", "2")));
+        // no replica in the datacenter
+        assertNull(CqlKeyspaceManager.replication(dc,
+                ImmutableMap.of("class", "org.apache.cassandra.locator.NetworkTopologyStrategy", "dc2", "2")));
+        // local to the nodes
+        assertNull(CqlKeyspaceManager.replication(dc, ImmutableMap.of("class", "org.apache.cassandra.locator.LocalStrategy")));
+        // one replica on every node
+        assertEquals(new CqlKeyspaceManager.Replication(6, true), CqlKeyspaceManager.replication(dc,
+                ImmutableMap.of("class", "org.apache.cassandra.locator.EverywhereStrategy")));
+        // replicas not placed on distinct racks
+        assertEquals(new CqlKeyspaceManager.Replication(2, false), CqlKeyspaceManager.replication(dc,
+                ImmutableMap.of("class", "org.apache.cassandra.locator.SimpleStrategy", "replication_factor", "2")));
+    }
+}
@@ -0,0 +1,135 @@
+package com.strapdata.strapkop.event;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.strapdata.model.Key;
+import com.strapdata.model.k8s.cassandra.DataCenter;
+import com.strapdata.model.k8s.cassandra.DataCenterPhase;
+import com.strapdata.model.k8s.cassandra.DataCenterStatus;
+import com.strapdata.model.sidecar.ElassandraEndpointStatus;
+import com.strapdata.model.sidecar.ElassandraNodeStatus;
+import com.strapdata.strapkop.OperatorConfig;
+import com.strapdata.strapkop.cache.DataCenterCache;
+import com.strapdata.strapkop.cache.ElassandraNodeStatusCache;
+import com.strapdata.strapkop.cache.ElassandraPodCache;
+import com.strapdata.strapkop.sidecar.SidecarClient;
+import com.strapdata.strapkop.sidecar.SidecarClientFactory;
+import io.kubernetes.client.models.V1ObjectMeta;
+import io.kubernetes.client.models.V1Pod;
+import io.kubernetes.client.models.V1PodStatus;
+import io.reactivex.Single;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class TestElassandraPodStatusSource {
+
+    private static final long NOW = 1000000;
+
+    private final ElassandraPod pod0 = ElassandraPod.fromName("default", "elassandra-cl1-dc1-a-0");
+    private final ElassandraPod pod1 = ElassandraPod.fromName("default", "elassandra-cl1-dc1-a-1");
+    private final ElassandraPod pod2 = ElassandraPod.fromName("default", "elassandra-cl1-dc1-a-2");
+    private final List<ElassandraPod> dcPods = ImmutableList.of(pod0, pod1, pod2);
+
+    private final ElassandraNodeStatusCache elassandraNodeStatusCache = new ElassandraNodeStatusCache();
+    private final DataCenterCache dataCenterCache = new DataCenterCache();
+    private final ElassandraPodCache elassandraPodCache = new ElassandraPodCache();
+    private final SidecarClientFactory sidecarClientFactory = mock(SidecarClientFactory.class);
+    private final SidecarClient sidecarClient = mock(SidecarClient.class);
+
+    private ElassandraPodStatusSource source;
+
+    @BeforeEach
+    public void setUp() throws MalformedURLException {
+        final OperatorConfig operatorConfig = mock(OperatorConfig.class);
+        when(operatorConfig.getNodeStatus()).thenReturn(new OperatorConfig.NodeStatusConfig());
+        when(sidecarClientFactory.clientForPod(any(ElassandraPod.class))).thenReturn(sidecarClient);
+        source = new ElassandraPodStatusSource(elassandraNodeStatusCache, dataCenterCache, elassandraPodCache, sidecarClientFactory, operatorConfig);
+
+        dataCenterCache.put(new Key("elassandra-cl1-dc1", "default"), new DataCenter()
+                .setMetadata(new V1ObjectMeta().name("elassandra-cl1-dc1").namespace("default"))
+                .setStatus(new DataCenterStatus().setPhase(DataCenterPhase.RUNNING)));
+        for (int i = 0; i < dcPods.size(); i++) {
+            final String name = dcPods.get(i).getName();
+            elassandraPodCache.put(new Key(name, "default"), new V1Pod()
+                    .metadata(new V1ObjectMeta().name(name).namespace("default"))
+                    .status(new V1PodStatus().podIP("10.0.0." + i).phase("Running")));
+            elassandraNodeStatusCache.put(dcPods.get(i), ElassandraNodeStatus.NORMAL);
+        }
+        elassandraPodCache.setSynced(true);
+
+        // pod0 and pod1 are due, pod2 is scheduled later
+        // first polls jittered within the min interval
+        source.scheduler.due(dcPods, NOW);
+        source.scheduler.due(dcPods, NOW + 5000);
+        source.scheduler.polled(pod2, ElassandraNodeStatus.NORMAL, ElassandraNodeStatus.NORMAL, false, NOW);
+    }
+
+    private static ElassandraEndpointStatus endpoint(String endpoint, ElassandraNodeStatus status) {
+        return new ElassandraEndpointStatus().setEndpoint(endpoint).setStatus(status);
+    }
+
+    private Map<ElassandraPod, NodeStatusEvent> fromGossip() {
+        return source.fromGossip(dcPods, ImmutableSet.of(pod0, pod1)).blockingGet().stream()
+                .collect(Collectors.toMap(NodeStatusEvent::getPod, Function.identity()));
+    }
+
+    @Test
+    public void testResolveAgreeingPods() {
+        when(sidecarClient.endpoints()).thenReturn(Single.just(ImmutableList.of(
+                endpoint("10.0.0.0", ElassandraNodeStatus.NORMAL),
+                endpoint("10.0.0.1", ElassandraNodeStatus.NORMAL),
+                endpoint("10.0.0.2", ElassandraNodeStatus.NORMAL))));
+
+        final Map<ElassandraPod, NodeStatusEvent> events = fromGossip();
+        assertEquals(ImmutableSet.of(pod0, pod1), events.keySet());
+        assertEquals(ElassandraNodeStatus.NORMAL, events.get(pod0).getCurrentMode());
+        assertEquals(ElassandraNodeStatus.NORMAL, events.get(pod1).getCurrentMode());
+        // the pod not due is confirmed stable, its interval doubled again
+        assertEquals(20000, source.scheduler.interval(pod2));
+        // a single gossip call for the datacenter
+        verify(sidecarClient, times(1)).endpoints();
+        verify(sidecarClient, times(0)).status();
+    }
+
+    @Test
+    public void testPollDisagreeingPods() {
+        when(sidecarClient.endpoints()).thenReturn(Single.just(ImmutableList.of(
+                endpoint("10.0.0.0", ElassandraNodeStatus.NORMAL),
+                endpoint("10.0.0.2", ElassandraNodeStatus.LEAVING))));
+
+        final Map<ElassandraPod, NodeStatusEvent> events = fromGossip();
+        assertEquals(ImmutableSet.of(pod0, pod1, pod2), events.keySet());
+        assertEquals(ElassandraNodeStatus.NORMAL, events.get(pod0).getCurrentMode());
+        // unknown from the gossip view
+        assertNull(events.get(pod1).getCurrentMode());
+        // disagrees with the cached status, polled ahead of its schedule
+        assertNull(events.get(pod2).getCurrentMode());
+        assertEquals(ImmutableList.of(), source.scheduler.due(dcPods, NOW + 100000));
+    }
+
+    @Test
+    public void testGossipFailure() {
+        when(sidecarClient.endpoints()).thenReturn(Single.error(new IOException("connection refused")));
+
+        final Map<ElassandraPod, NodeStatusEvent> events = fromGossip();
+        assertEquals(ImmutableSet.of(pod0, pod1), events.keySet());
+        assertNull(events.get(pod0).getCurrentMode());
+        assertNull(events.get(pod1).getCurrentMode());
+        assertEquals(10000, source.scheduler.interval(pod2));
+    }
+}
@@ -0,0 +1,89 @@
+package com.strapdata.strapkop.event;
+
+import com.google.common.collect.ImmutableList;
+import com.strapdata.model.sidecar.ElassandraNodeStatus;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestNodeStatusPollScheduler {
+
+    final ElassandraPod pod = ElassandraPod.fromName("default", "elassandra-cl1-dc1-local-0");
+    final List<ElassandraPod> pods = ImmutableList.of(pod);
+
+    @Test
+    public void testBackoffWhileStable() {
+        final NodeStatusPollScheduler scheduler = new NodeStatusPollScheduler(1000, 8000);
+        long now = 0;
+
+        // first poll jittered within the min interval
+        List<ElassandraPod> due = scheduler.due(pods, now);
+        if (due.isEmpty()) {
+            now += 1000;
+            due = scheduler.due(pods, now);
+        }
+        assertEquals(pods, due);
+        // not polled again while in flight
+        assertTrue(scheduler.due(pods, now + 100000).isEmpty());
+
+        scheduler.polled(pod, ElassandraNodeStatus.UNKNOWN, ElassandraNodeStatus.NORMAL, false, now);
+        assertEquals(1000, scheduler.interval(pod));
+
+        for (long expected : new long[] { 2000, 4000, 8000, 8000 }) {
+            now += 2 * scheduler.interval(pod);
+            assertEquals(pods, scheduler.due(pods, now));
+            scheduler.polled(pod, ElassandraNodeStatus.NORMAL, ElassandraNodeStatus.NORMAL, false, now);
+            assertEquals(expected, scheduler.interval(pod));
+            // next poll after the interval, with up to 10% jitter
+            assertTrue(scheduler.due(pods, now + expected - 1).isEmpty());
+        }
+
+        // tighten when the datacenter is busy
+        now += 20000;
+        assertEquals(pods, scheduler.due(pods, now));
+        scheduler.polled(pod, ElassandraNodeStatus.NORMAL, ElassandraNodeStatus.NORMAL, true, now);
+        assertEquals(1000, scheduler.interval(pod));
+    }
+
+    @Test
+    public void testForgetRemovedPods() {
+        final NodeStatusPollScheduler scheduler = new NodeStatusPollScheduler(1000, 8000);
+        scheduler.due(pods, 0);
+        assertEquals(1000, scheduler.interval(pod));
+        scheduler.due(ImmutableList.of(), 0);
+        assertEquals(-1, scheduler.interval(pod));
+    }
+
+    @Test
+    public void testConfirmedAndExpedited() {
+        final NodeStatusPollScheduler scheduler = new NodeStatusPollScheduler(1000, 8000);
+        // not scheduled
+        scheduler.confirmed(pod, ElassandraNodeStatus.NORMAL, false, 0);
+        assertEquals(-1, scheduler.interval(pod));
+        assertFalse(scheduler.expedite(pod));
+
+        // first poll jittered within the min interval
+        scheduler.due(pods, 0);
+        scheduler.due(pods, 1000);
+        // ignored while in flight
+        scheduler.confirmed(pod, ElassandraNodeStatus.NORMAL, false, 1000);
+        assertEquals(1000, scheduler.interval(pod));
+        assertFalse(scheduler.expedite(pod));
+
+        scheduler.polled(pod, ElassandraNodeStatus.NORMAL, ElassandraNodeStatus.NORMAL, false, 1000);
+        assertEquals(2000, scheduler.interval(pod));
+        scheduler.confirmed(pod, ElassandraNodeStatus.NORMAL, false, 1000);
+        assertEquals(4000, scheduler.interval(pod));
+        scheduler.confirmed(pod, ElassandraNodeStatus.JOINING, false, 1000);
+        assertEquals(1000, scheduler.interval(pod));
+
+        // polled ahead of its schedule, once
+        assertTrue(scheduler.expedite(pod));
+        assertFalse(scheduler.expedite(pod));
+        assertTrue(scheduler.due(pods, 100000).isEmpty());
+    }
+}
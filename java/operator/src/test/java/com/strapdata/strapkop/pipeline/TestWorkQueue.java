@@ -0,0 +1,174 @@
+package com.strapdata.strapkop.pipeline;
+
+import com.strapdata.model.ClusterKey;
+import com.strapdata.model.Key;
+import io.reactivex.Completable;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestWorkQueue {
+    final ClusterKey clusterKey = new ClusterKey("cl1", "default");
+    final Key dcKey = new Key("elassandra-cl1-dc1", "default");
+
+    private WorkQueueRateLimiter rateLimiter() {
+        return new WorkQueueRateLimiter(10, 100, 100, 10);
+    }
+
+    @Test
+    public void testCoalesceWhileRunning() throws InterruptedException {
+        final WorkQueue workQueue = new WorkQueue(2, rateLimiter());
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch followUp = new CountDownLatch(1);
+        final AtomicInteger runs = new AtomicInteger();
+
+        workQueue.submit(clusterKey, dcKey, Completable.fromAction(() -> {
+            runs.incrementAndGet();
+            started.countDown();
+            release.await();
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // a burst of submissions while running must produce exactly one follow-up
+        for (int i = 0; i < 10; i++) {
+            workQueue.submit(clusterKey, dcKey, Completable.fromAction(() -> {
+                runs.incrementAndGet();
+                followUp.countDown();
+            }));
+        }
+        release.countDown();
+
+        assertTrue(followUp.await(5, TimeUnit.SECONDS));
+        Thread.sleep(200);
+        assertEquals(2, runs.get());
+        workQueue.dispose(clusterKey);
+    }
+
+    @Test
+    public void testNoCoalesceWithoutKey() throws InterruptedException {
+        final WorkQueue workQueue = new WorkQueue(2, rateLimiter());
+        final CountDownLatch done = new CountDownLatch(5);
+
+        for (int i = 0; i < 5; i++) {
+            workQueue.submit(clusterKey, Completable.fromAction(done::countDown));
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        workQueue.dispose(clusterKey);
+    }
+
+    @Test
+    public void testFairnessAcrossClusters() throws InterruptedException {
+        // a single worker must not be monopolized by a busy cluster
+        final WorkQueue workQueue = new WorkQueue(1, rateLimiter());
+        final ClusterKey otherClusterKey = new ClusterKey("cl2", "default");
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch otherDone = new CountDownLatch(1);
+        final AtomicInteger busyRuns = new AtomicInteger();
+        final AtomicInteger busyRunsBeforeOther = new AtomicInteger(-1);
+
+        workQueue.submit(clusterKey, Completable.fromAction(release::await));
+        for (int i = 0; i < 10; i++) {
+            workQueue.submit(clusterKey, Completable.fromAction(busyRuns::incrementAndGet));
+        }
+        workQueue.submit(otherClusterKey, Completable.fromAction(() -> {
+            busyRunsBeforeOther.set(busyRuns.get());
+            otherDone.countDown();
+        }));
+        assertTrue(workQueue.getQueueDepth() >= 11);
+        release.countDown();
+
+        assertTrue(otherDone.await(5, TimeUnit.SECONDS));
+        assertEquals(0, busyRunsBeforeOther.get());
+        workQueue.dispose(clusterKey);
+        workQueue.dispose(otherClusterKey);
+    }
+
+    @Test
+    public void testRetryFailedKey() throws InterruptedException {
+        final WorkQueue workQueue = new WorkQueue(1, rateLimiter());
+        final CountDownLatch attempts = new CountDownLatch(3);
+
+        workQueue.submit(clusterKey, dcKey, Completable.fromAction(() -> {
+            attempts.countDown();
+            throw new IllegalStateException("bad datacenter");
+        }));
+
+        assertTrue(attempts.await(5, TimeUnit.SECONDS));
+        workQueue.dispose(clusterKey);
+    }
+
+    @Test
+    public void testSubmitAfter() throws InterruptedException {
+        final WorkQueue workQueue = new WorkQueue(1, rateLimiter());
+        final CountDownLatch done = new CountDownLatch(1);
+        final AtomicInteger runs = new AtomicInteger();
+
+        workQueue.submit(clusterKey, dcKey, Completable.complete());
+        workQueue.submitAfter(clusterKey, dcKey, Completable.fromAction(() -> {
+            runs.incrementAndGet();
+            done.countDown();
+        }), 100);
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+
+        // dropped once the cluster queue is disposed
+        workQueue.submitAfter(clusterKey, dcKey, Completable.fromAction(runs::incrementAndGet), 100);
+        workQueue.dispose(clusterKey);
+        Thread.sleep(300);
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    public void testForgetDisposedKey() throws InterruptedException {
+        final WorkQueueRateLimiter limiter = new WorkQueueRateLimiter(60000, 60000, 100, 10);
+        final WorkQueue workQueue = new WorkQueue(1, limiter);
+        final CountDownLatch attempted = new CountDownLatch(1);
+
+        workQueue.submit(clusterKey, dcKey, Completable.fromAction(() -> {
+            attempted.countDown();
+            throw new IllegalStateException("bad datacenter");
+        }));
+        assertTrue(attempted.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 50 && limiter.failures(dcKey) == 0; i++) {
+            Thread.sleep(100);
+        }
+        assertEquals(1, limiter.failures(dcKey));
+
+        // the datacenter is deleted while backing off
+        workQueue.dispose(clusterKey);
+        assertEquals(0, limiter.failures(dcKey));
+    }
+
+    @Test
+    public void testExponentialBackoff() {
+        final WorkQueueRateLimiter limiter = new WorkQueueRateLimiter(10, 100, 1000, 1000);
+        long previous = 0;
+        for (int i = 0; i < 4; i++) {
+            final long delay = limiter.when(dcKey);
+            assertTrue(delay >= (10L << i) && delay <= (long) ((10L << i) * 1.2), "delay=" + delay);
+            assertTrue(delay > previous);
+            previous = delay;
+        }
+        // capped to the max delay + jitter
+        assertTrue(limiter.when(dcKey) <= 120);
+        assertEquals(5, limiter.failures(dcKey));
+
+        limiter.forget(dcKey);
+        assertTrue(limiter.when(dcKey) <= 12);
+    }
+
+    @Test
+    public void testTokenBucket() {
+        // 1 token per second with a burst of 2 => the third requeue waits for a token
+        final WorkQueueRateLimiter limiter = new WorkQueueRateLimiter(1, 1, 1, 2);
+        assertTrue(limiter.when(new Key("a", "default")) <= 1);
+        assertTrue(limiter.when(new Key("b", "default")) <= 1);
+        assertTrue(limiter.when(new Key("c", "default")) > 900);
+    }
+}
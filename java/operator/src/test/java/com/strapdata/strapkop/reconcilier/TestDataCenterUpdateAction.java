@@ -0,0 +1,335 @@
+package com.strapdata.strapkop.reconcilier;
+
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Session;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.strapdata.model.Key;
+import com.strapdata.model.k8s.cassandra.DataCenter;
+import com.strapdata.model.k8s.cassandra.DataCenterSpec;
+import com.strapdata.model.sidecar.ElassandraNodeHealth;
+import com.strapdata.model.sidecar.ElassandraNodeStatus;
+import com.strapdata.strapkop.OperatorConfig;
+import com.strapdata.strapkop.cache.ElassandraNodeStatusCache;
+import com.strapdata.strapkop.cache.GeneratedConfigMapCache;
+import com.strapdata.strapkop.cache.NodeCache;
+import com.strapdata.strapkop.cql.CqlKeyspace;
+import com.strapdata.strapkop.cql.CqlKeyspaceManager;
+import com.strapdata.strapkop.cql.CqlLicenseManager;
+import com.strapdata.strapkop.cql.CqlRoleManager;
+import com.strapdata.strapkop.k8s.K8sResourceUtils;
+import com.strapdata.strapkop.k8s.OperatorNames;
+import com.strapdata.strapkop.plugins.PluginRegistry;
+import com.strapdata.strapkop.sidecar.SidecarClient;
+import com.strapdata.strapkop.sidecar.SidecarClientFactory;
+import com.strapdata.strapkop.ssl.AuthorityManager;
+import io.kubernetes.client.ApiClient;
+import io.kubernetes.client.apis.AppsV1Api;
+import io.kubernetes.client.apis.CoreV1Api;
+import io.kubernetes.client.apis.CustomObjectsApi;
+import io.kubernetes.client.models.V1ConfigMap;
+import io.kubernetes.client.models.V1ConfigMapVolumeSource;
+import io.kubernetes.client.models.V1ObjectMeta;
+import io.kubernetes.client.models.V1RollingUpdateStatefulSetStrategy;
+import io.kubernetes.client.models.V1StatefulSet;
+import io.kubernetes.client.models.V1StatefulSetSpec;
+import io.kubernetes.client.models.V1StatefulSetStatus;
+import io.kubernetes.client.models.V1StatefulSetUpdateStrategy;
+import io.kubernetes.client.models.V1Volume;
+import io.micronaut.context.ApplicationContext;
+import io.reactivex.Single;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.*;
+
+public class TestDataCenterUpdateAction {
+
+    private final K8sResourceUtils k8sResourceUtilsMock = mock(K8sResourceUtils.class);
+    private final SidecarClientFactory sidecarClientFactoryMock = mock(SidecarClientFactory.class);
+    private final SidecarClient sidecarClientMock = mock(SidecarClient.class);
+    private final OperatorConfig operatorConfigMock = mock(OperatorConfig.class);
+    private final AppsV1Api appsApiMock = mock(AppsV1Api.class);
+    private final GeneratedConfigMapCache generatedConfigMapCache = new GeneratedConfigMapCache();
+    private final ElassandraNodeStatusCache elassandraNodeStatusCache = new ElassandraNodeStatusCache();
+    private final CqlKeyspaceManager cqlKeyspaceManager = new CqlKeyspaceManager(mock(PluginRegistry.class));
+
+    private DataCenter dataCenter(int replicas) {
+        return new DataCenter()
+                .setMetadata(new V1ObjectMeta().name("elassandra-cl1-dc1").namespace("default").uid("uid1").generation(1L))
+                .setSpec(new DataCenterSpec().setClusterName("cl1").setDatacenterName("dc1").setReplicas(replicas));
+    }
+
+    private DataCenterUpdateAction action(DataCenter dc) {
+        return new DataCenterUpdateAction(mock(ApplicationContext.class), mock(CoreV1Api.class), appsApiMock,
+                mock(CustomObjectsApi.class), k8sResourceUtilsMock, mock(AuthorityManager.class), mock(CqlRoleManager.class),
+                cqlKeyspaceManager, elassandraNodeStatusCache, mock(NodeCache.class), generatedConfigMapCache,
+                sidecarClientFactoryMock, operatorConfigMock, dc, mock(CqlLicenseManager.class));
+    }
+
+    // a rack of 3 pods rolling with the partition at 2, the last pod being updated, ready and NORMAL
+    private DataCenterUpdateAction.Zone rollingZone(DataCenter dc) {
+        final V1StatefulSet sts = new V1StatefulSet()
+                .metadata(new V1ObjectMeta().name("elassandra-cl1-dc1-a").namespace("default"))
+                .spec(new V1StatefulSetSpec().replicas(3).updateStrategy(new V1StatefulSetUpdateStrategy()
+                        .type("RollingUpdate").rollingUpdate(new V1RollingUpdateStatefulSetStrategy().partition(2))))
+                .status(new V1StatefulSetStatus().replicas(3).readyReplicas(3).updatedReplicas(1));
+        final DataCenterUpdateAction.Zone zone = new DataCenterUpdateAction.Zone("a");
+        zone.setSize(3);
+        zone.setSts(Optional.of(sts));
+        for (int i = 0; i < 3; i++) {
+            elassandraNodeStatusCache.put(zone.pod(dc, i), ElassandraNodeStatus.NORMAL);
+        }
+        return zone;
+    }
+
+    // racks of 3 k8s nodes, each having a statefulset of one pod
+    private DataCenterUpdateAction.Zones zones(DataCenter dc, String... racks) {
+        final ImmutableMap.Builder<String, Integer> nodesByZone = ImmutableMap.builder();
+        final ImmutableMap.Builder<String, V1StatefulSet> stsByZone = ImmutableMap.builder();
+        for (String rack : racks) {
+            nodesByZone.put(rack, 3);
+            stsByZone.put(rack, new V1StatefulSet()
+                    .metadata(new V1ObjectMeta().name("elassandra-cl1-dc1-" + rack).namespace("default"))
+                    .spec(new V1StatefulSetSpec().replicas(1))
+                    .status(new V1StatefulSetStatus().replicas(1).readyReplicas(1)));
+        }
+        return new DataCenterUpdateAction.Zones(nodesByZone.build(), stsByZone.build());
+    }
+
+    // memoize a generated configmap for the datacenter generation, so that it is not built from the spec
+    private void memoize(DataCenter dc, String name, String version) {
+        generatedConfigMapCache.put(new Key(name, "default"), new GeneratedConfigMapCache.Entry(dc.getMetadata().getName(), version,
+                new V1ConfigMap().metadata(new V1ObjectMeta().name(name).namespace("default")),
+                new V1ConfigMapVolumeSource().name(name), name + "-volume", "/tmp/" + name, "0000000"));
+    }
+
+    @Test
+    public void testConcurrentBootstrapOptionsMounted() throws Exception {
+        final DataCenter dc = dataCenter(3);
+        final DataCenterUpdateAction action = action(dc);
+        when(appsApiMock.getApiClient()).thenReturn(new ApiClient());
+        memoize(dc, OperatorNames.specConfig(dc), "uid1-1");
+        memoize(dc, OperatorNames.seedConfig(dc), "uid1-1-");
+        final String key = DataCenterUpdateAction.CONCURRENT_BOOTSTRAP_OPTIONS.replaceAll("\\W", "_");
+
+        final V1StatefulSet[] statefulSets = new V1StatefulSet[2];
+        for (int i = 0; i < 2; i++) {
+            final boolean concurrentBootstrap = (i == 1);
+            final DataCenterUpdateAction.ConfigMapVolumeMounts configMapVolumeMounts = action.new ConfigMapVolumeMounts(zones(dc, "a"), "a", concurrentBootstrap);
+            statefulSets[i] = action.builder.buildStatefulSetRack("a", 1, configMapVolumeMounts);
+            final V1Volume rackVolume = statefulSets[i].getSpec().getTemplate().getSpec().getVolumes().stream()
+                    .filter(v -> v.getName().equals(configMapVolumeMounts.rackConfig.mountName))
+                    .findFirst().get();
+            assertTrue(rackVolume.getConfigMap().getItems().stream()
+                    .anyMatch(item -> item.getKey().equals(key) && item.getPath().equals(DataCenterUpdateAction.CONCURRENT_BOOTSTRAP_OPTIONS)));
+            assertEquals(concurrentBootstrap ? "-Dcassandra.consistent.rangemovement=false\n" : "",
+                    configMapVolumeMounts.rackConfig.configMap.getData().get(key));
+        }
+        // a scale up wave only patches the replicas, the pod template must already mount the options
+        assertEquals(statefulSets[0].getSpec().getTemplate(), statefulSets[1].getSpec().getTemplate());
+    }
+
+    @Test
+    public void testScaleUpWaveSize() {
+        final DataCenter dc = dataCenter(9);
+        dc.getSpec().setScaleUpWaveSize(3);
+        final DataCenterUpdateAction action = action(dc);
+
+        // replications not read yet
+        assertEquals(1, action.scaleUpWaveSize(zones(dc, "a", "b", "c")));
+
+        // system keyspaces RF=3 on 3 racks, elastic_admin on every node
+        readReplications(dc, ImmutableMap.of(
+                "system", ImmutableMap.of("class", "org.apache.cassandra.locator.LocalStrategy"),
+                "system_auth", networkTopology(3),
+                "elastic_admin", networkTopology(9)));
+        assertEquals(3, action.scaleUpWaveSize(zones(dc, "a", "b", "c")));
+        // more racks than the RF, joining nodes may move replicas of the same range
+        assertEquals(1, action.scaleUpWaveSize(zones(dc, "a", "b", "c", "d", "e", "f")));
+        // fewer racks than the RF
+        assertEquals(1, action.scaleUpWaveSize(zones(dc, "a", "b")));
+
+        // a managed keyspace having a RF different from the number of racks
+        cqlKeyspaceManager.addIfAbsent(dc, "ks2", () -> new CqlKeyspace("ks2", 2));
+        assertEquals(1, action.scaleUpWaveSize(zones(dc, "a", "b", "c")));
+        cqlKeyspaceManager.remove(dc, "ks2");
+        cqlKeyspaceManager.addIfAbsent(dc, "ks3", () -> new CqlKeyspace("ks3", 3));
+        assertEquals(3, action.scaleUpWaveSize(zones(dc, "a", "b", "c")));
+        cqlKeyspaceManager.remove(dc, "ks3");
+
+        // a user keyspace having a RF different from the number of racks, or replicas possibly on the same rack
+        readReplications(dc, ImmutableMap.of("system_auth", networkTopology(3), "user_ks", networkTopology(2)));
+        assertEquals(1, action.scaleUpWaveSize(zones(dc, "a", "b", "c")));
+        readReplications(dc, ImmutableMap.of("system_auth", networkTopology(3),
+                "user_ks", ImmutableMap.of("class", "org.apache.cassandra.locator.SimpleStrategy", "replication_factor", "3")));
+        assertEquals(1, action.scaleUpWaveSize(zones(dc, "a", "b", "c")));
+        readReplications(dc, ImmutableMap.of("system_auth", networkTopology(3), "user_ks", networkTopology(3)));
+        assertEquals(3, action.scaleUpWaveSize(zones(dc, "a", "b", "c")));
+
+        // capped to the missing replicas
+        dc.getSpec().setReplicas(4);
+        assertEquals(1, action(dc).scaleUpWaveSize(zones(dc, "a", "b", "c")));
+        dc.getSpec().setScaleUpWaveSize(1);
+        assertEquals(1, action(dc).scaleUpWaveSize(zones(dc, "a", "b", "c")));
+    }
+
+    @Test
+    public void testBusyRollingUpdateIsRequeued() throws Exception {
+        final DataCenter dc = dataCenter(3);
+        final DataCenterUpdateAction action = action(dc);
+        final DataCenterUpdateAction.Zone zone = rollingZone(dc);
+        final TreeMap<String, V1StatefulSet> existingStsMap = new TreeMap<>(ImmutableMap.of("a", zone.getSts().get(), "b", runningSts(dc, "b")));
+        when(operatorConfigMock.getNodeStatus()).thenReturn(new OperatorConfig.NodeStatusConfig());
+        when(sidecarClientFactoryMock.clientForPod(any())).thenReturn(sidecarClientMock);
+        when(k8sResourceUtilsMock.updateNamespacedStatefulSetPartition(any(), anyInt())).thenReturn(Single.just(zone.getSts().get()));
+
+        // compactions pending => the step is deferred and the datacenter requeued
+        when(sidecarClientMock.health()).thenReturn(Single.just(new ElassandraNodeHealth()
+                .setStatus(ElassandraNodeStatus.NORMAL).setPendingCompactions(1000L)));
+        action.nextPartitionStep(zone, existingStsMap, Collections.singleton("a")).blockingAwait();
+        assertTrue(action.isRequeueRequested());
+        verify(k8sResourceUtilsMock, never()).updateNamespacedStatefulSetPartition(any(), anyInt());
+
+        // compactions drained => the next reconciliation lowers the partition
+        when(sidecarClientMock.health()).thenReturn(Single.just(new ElassandraNodeHealth().setStatus(ElassandraNodeStatus.NORMAL)));
+        final DataCenterUpdateAction nextAction = action(dc);
+        nextAction.nextPartitionStep(zone, existingStsMap, Collections.singleton("a")).blockingAwait();
+        assertFalse(nextAction.isRequeueRequested());
+        verify(k8sResourceUtilsMock).updateNamespacedStatefulSetPartition(zone.getSts().get(), 1);
+    }
+
+    @Test
+    public void testRollingUpdateWaitsHints() throws Exception {
+        final DataCenter dc = dataCenter(9);
+        final DataCenterUpdateAction.Zone zone = rollingZone(dc);
+        final TreeMap<String, V1StatefulSet> existingStsMap = new TreeMap<>(ImmutableMap.of(
+                "a", zone.getSts().get(), "b", runningSts(dc, "b"), "c", runningSts(dc, "c")));
+        final SidecarClient otherRackClient = mock(SidecarClient.class);
+        when(operatorConfigMock.getNodeStatus()).thenReturn(new OperatorConfig.NodeStatusConfig());
+        when(sidecarClientFactoryMock.clientForPod(any())).thenReturn(sidecarClientMock);
+        when(sidecarClientFactoryMock.clientForPod(argThat(pod -> "b".equals(pod.getRack())))).thenReturn(otherRackClient);
+        when(k8sResourceUtilsMock.updateNamespacedStatefulSetPartition(any(), anyInt())).thenReturn(Single.just(zone.getSts().get()));
+        when(sidecarClientMock.health()).thenReturn(Single.just(new ElassandraNodeHealth().setStatus(ElassandraNodeStatus.NORMAL)));
+
+        // a coordinator of another rack still has hints for the restarted pod => deferred
+        when(otherRackClient.health()).thenReturn(Single.just(new ElassandraNodeHealth()
+                .setStatus(ElassandraNodeStatus.NORMAL).setPendingHintsEndpoints(1)));
+        final DataCenterUpdateAction action = action(dc);
+        action.nextPartitionStep(zone, existingStsMap, ImmutableSet.of("a", "c")).blockingAwait();
+        assertTrue(action.isRequeueRequested());
+        verify(k8sResourceUtilsMock, never()).updateNamespacedStatefulSetPartition(any(), anyInt());
+
+        // hints replayed, the compactions of the other racks do not defer the step
+        when(otherRackClient.health()).thenReturn(Single.just(new ElassandraNodeHealth()
+                .setStatus(ElassandraNodeStatus.NORMAL).setPendingCompactions(1000L)));
+        final DataCenterUpdateAction nextAction = action(dc);
+        nextAction.nextPartitionStep(zone, existingStsMap, ImmutableSet.of("a", "c")).blockingAwait();
+        assertFalse(nextAction.isRequeueRequested());
+        verify(k8sResourceUtilsMock).updateNamespacedStatefulSetPartition(zone.getSts().get(), 1);
+        // the pods of another moving rack may be down and are not asked
+        verify(sidecarClientFactoryMock, never()).clientForPod(argThat(pod -> "c".equals(pod.getRack())));
+    }
+
+    @Test
+    public void testRollingUpdateWaitsOtherRacks() throws Exception {
+        final DataCenter dc = dataCenter(6);
+        final DataCenterUpdateAction action = action(dc);
+        final DataCenterUpdateAction.Zone zone = rollingZone(dc);
+        final TreeMap<String, V1StatefulSet> existingStsMap = new TreeMap<>(ImmutableMap.of("a", zone.getSts().get(), "b", runningSts(dc, "b")));
+        when(operatorConfigMock.getNodeStatus()).thenReturn(new OperatorConfig.NodeStatusConfig());
+
+        // a replica of another rack is down => deferred without any sidecar call
+        elassandraNodeStatusCache.put(new DataCenterUpdateAction.Zone("b").pod(dc, 1), ElassandraNodeStatus.DOWN);
+        action.nextPartitionStep(zone, existingStsMap, Collections.singleton("a")).blockingAwait();
+        assertTrue(action.isRequeueRequested());
+        verify(sidecarClientFactoryMock, never()).clientForPod(any());
+        verify(k8sResourceUtilsMock, never()).updateNamespacedStatefulSetPartition(any(), anyInt());
+    }
+
+    // a running rack of 3 NORMAL pods
+    private V1StatefulSet runningSts(DataCenter dc, String rack) {
+        final DataCenterUpdateAction.Zone zone = new DataCenterUpdateAction.Zone(rack);
+        for (int i = 0; i < 3; i++) {
+            elassandraNodeStatusCache.put(zone.pod(dc, i), ElassandraNodeStatus.NORMAL);
+        }
+        return new V1StatefulSet()
+                .metadata(new V1ObjectMeta().name("elassandra-cl1-dc1-" + rack).namespace("default"))
+                .spec(new V1StatefulSetSpec().replicas(3))
+                .status(new V1StatefulSetStatus().replicas(3).readyReplicas(3));
+    }
+
+    private static Map<String, String> networkTopology(int rf) {
+        return ImmutableMap.of("class", "org.apache.cassandra.locator.NetworkTopologyStrategy", "dc1", Integer.toString(rf));
+    }
+
+    // read the keyspace replications from a system_schema.keyspaces table having the given rows
+    private void readReplications(DataCenter dc, Map<String, Map<String, String>> replicationByKeyspace) {
+        final List<Row> rows = new ArrayList<>();
+        for (Map.Entry<String, Map<String, String>> entry : replicationByKeyspace.entrySet()) {
+            final Row row = mock(Row.class);
+            when(row.getString("keyspace_name")).thenReturn(entry.getKey());
+            when(row.getMap("replication", String.class, String.class)).thenReturn(entry.getValue());
+            rows.add(row);
+        }
+        final ResultSet resultSet = mock(ResultSet.class);
+        when(resultSet.iterator()).thenReturn(rows.iterator());
+        final Session session = mock(Session.class);
+        when(session.execute("SELECT keyspace_name, replication FROM system_schema.keyspaces")).thenReturn(resultSet);
+        cqlKeyspaceManager.readReplications(dc, d -> Single.just(session)).blockingAwait();
+    }
+
+    @Test
+    public void testMaxUpdatingRacks() {
+        final DataCenter dc = dataCenter(12);
+        dc.getSpec().setMaxUnavailableRacks(2);
+        final DataCenterUpdateAction action = action(dc);
+
+        // replications not read yet
+        assertEquals(1, action.maxUpdatingRacks(6));
+
+        // system keyspaces RF=3 on 6 racks, two racks down would lose 2 replicas of some ranges
+        readReplications(dc, ImmutableMap.of(
+                "system", ImmutableMap.of("class", "org.apache.cassandra.locator.LocalStrategy"),
+                "system_auth", networkTopology(3),
+                "elastic_admin", networkTopology(12)));
+        assertEquals(1, action.maxUpdatingRacks(6));
+    }
+
+    @Test
+    public void testToleratedRacks() {
+        // one replica per rack
+        assertEquals(1, DataCenterUpdateAction.toleratedRacks(3, 6));
+        assertEquals(2, DataCenterUpdateAction.toleratedRacks(5, 6));
+        assertEquals(2, DataCenterUpdateAction.toleratedRacks(6, 6));
+        // several replicas per rack
+        assertEquals(0, DataCenterUpdateAction.toleratedRacks(3, 2));
+        assertEquals(1, DataCenterUpdateAction.toleratedRacks(5, 3));
+        // no quorum with a single replica
+        assertEquals(0, DataCenterUpdateAction.toleratedRacks(1, 3));
+    }
+
+    @Test
+    public void testScaleUpWave() {
+        final DataCenterUpdateAction.Zones zones = new DataCenterUpdateAction.Zones(
+                ImmutableMap.of("a", 2, "b", 3, "c", 1), Collections.emptyMap());
+        // distinct zones, smallest zones first
+        final List<String> wave = zones.nextToScaleUp(2).stream().map(DataCenterUpdateAction.Zone::getName).collect(Collectors.toList());
+        assertEquals(2, wave.size());
+        assertEquals("c", wave.get(0));
+        assertEquals("a", wave.get(1));
+        assertEquals(3, zones.nextToScaleUp(10).size());
+        assertEquals("c", zones.nextToScalueUp().get().getName());
+    }
+}
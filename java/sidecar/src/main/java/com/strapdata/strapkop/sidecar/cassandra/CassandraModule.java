@@ -60,6 +60,21 @@ public class CassandraModule {
         return JMX.newMBeanProxy(mBeanServerConnection, CassandraObjectNames.STORAGE_SERVICE_MBEAN_NAME, StorageServiceMBean.class);
     }
 
+    @Singleton
+    public EndpointSnitchInfoMBean endpointSnitchInfoMBeanProvider() {
+        return JMX.newMBeanProxy(mBeanServerConnection, CassandraObjectNames.ENDPOINT_SNITCH_INFO_MBEAN_NAME, EndpointSnitchInfoMBean.class);
+    }
+
+    @Singleton
+    public HintedHandOffManagerMBean hintedHandOffManagerMBeanProvider() {
+        return JMX.newMBeanProxy(mBeanServerConnection, CassandraObjectNames.HINTED_HANDOFF_MANAGER_MBEAN_NAME, HintedHandOffManagerMBean.class);
+    }
+
+    @Singleton
+    public GaugeMBean pendingCompactionsMBeanProvider() {
+        return JMX.newMBeanProxy(mBeanServerConnection, CassandraObjectNames.PENDING_COMPACTIONS_MBEAN_NAME, GaugeMBean.class);
+    }
+
     @Singleton
     public ElasticNodeMetricsMBean elasticNodeMetricsMBeanProvider() {
         return JMX.newMBeanProxy(mBeanServerConnection, CassandraObjectNames.ELASTIC_NODE_METRICS_MBEAN_NAME, ElasticNodeMetricsMBean.class);
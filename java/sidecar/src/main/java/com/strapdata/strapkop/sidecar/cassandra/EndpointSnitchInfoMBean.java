@@ -0,0 +1,8 @@
+package com.strapdata.strapkop.sidecar.cassandra;
+
+import java.net.UnknownHostException;
+
+public interface EndpointSnitchInfoMBean {
+    public String getRack(String host) throws UnknownHostException;
+    public String getDatacenter(String host) throws UnknownHostException;
+}
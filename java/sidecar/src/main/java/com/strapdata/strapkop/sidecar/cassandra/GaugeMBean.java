@@ -0,0 +1,8 @@
+package com.strapdata.strapkop.sidecar.cassandra;
+
+/**
+ * A cassandra metrics gauge exposed by the JMX reporter.
+ */
+public interface GaugeMBean {
+    public Object getValue();
+}
@@ -0,0 +1,7 @@
+package com.strapdata.strapkop.sidecar.cassandra;
+
+import java.util.List;
+
+public interface HintedHandOffManagerMBean {
+    public List<String> listEndpointsPendingHints();
+}
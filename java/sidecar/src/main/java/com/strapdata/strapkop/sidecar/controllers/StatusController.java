@@ -1,7 +1,12 @@
 package com.strapdata.strapkop.sidecar.controllers;
 
+import com.strapdata.model.sidecar.ElassandraEndpointStatus;
+import com.strapdata.model.sidecar.ElassandraNodeHealth;
 import com.strapdata.model.sidecar.ElassandraNodeStatus;
 import com.strapdata.strapkop.sidecar.cassandra.CassandraModule;
+import com.strapdata.strapkop.sidecar.cassandra.EndpointSnitchInfoMBean;
+import com.strapdata.strapkop.sidecar.cassandra.GaugeMBean;
+import com.strapdata.strapkop.sidecar.cassandra.HintedHandOffManagerMBean;
 import io.micronaut.http.MediaType;
 import io.micronaut.http.annotation.Controller;
 import io.micronaut.http.annotation.Get;
@@ -11,6 +16,15 @@ import jmx.org.apache.cassandra.service.StorageServiceMBean;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 /**
  * Get Cassandra node status
  */
@@ -22,9 +36,15 @@ public class StatusController {
     private static final Logger logger = LoggerFactory.getLogger(StatusController.class);
     
     private final StorageServiceMBean storageServiceMBean;
+    private final HintedHandOffManagerMBean hintedHandOffManagerMBean;
+    private final GaugeMBean pendingCompactionsMBean;
+    private final EndpointSnitchInfoMBean endpointSnitchInfoMBean;
 
     public StatusController(CassandraModule cassandraModule) {
         this.storageServiceMBean = cassandraModule.storageServiceMBeanProvider();
+        this.hintedHandOffManagerMBean = cassandraModule.hintedHandOffManagerMBeanProvider();
+        this.pendingCompactionsMBean = cassandraModule.pendingCompactionsMBeanProvider();
+        this.endpointSnitchInfoMBean = cassandraModule.endpointSnitchInfoMBeanProvider();
     }
 
     /**
@@ -41,4 +61,89 @@ public class StatusController {
             return ElassandraNodeStatus.UNKNOWN;
         }
     }
+
+    /**
+     * Get the Cassandra node status, pending compactions and pending hints to live endpoints.
+     * @return
+     */
+    @Get("/health")
+    public ElassandraNodeHealth getHealth() {
+        final ElassandraNodeHealth health = new ElassandraNodeHealth().setStatus(getStatus());
+        try {
+            health.setPendingCompactions(((Number) pendingCompactionsMBean.getValue()).longValue());
+            health.setPendingHintsEndpoints(countLiveEndpointsPendingHints());
+        }
+        catch (RuntimeException e) {
+            logger.error("error while getting pending compactions and hints", e);
+            health.setStatus(ElassandraNodeStatus.UNKNOWN);
+        }
+        return health;
+    }
+
+    /**
+     * Hints to a down endpoint are kept until it comes back or the hint window expires, and are not replayed meanwhile,
+     * so only the live endpoints are counted. Endpoints pending hints may be listed by host id or by address.
+     */
+    int countLiveEndpointsPendingHints() {
+        final Set<String> live = new HashSet<>(storageServiceMBean.getLiveNodes());
+        final Map<String, String> hostIdToEndpoint = storageServiceMBean.getHostIdToEndpoint();
+        int count = 0;
+        for (String endpoint : hintedHandOffManagerMBean.listEndpointsPendingHints()) {
+            if (live.contains(hostIdToEndpoint.getOrDefault(endpoint, endpoint)))
+                count++;
+        }
+        return count;
+    }
+
+    /**
+     * Get the status, load and ownership of all the endpoints known by the gossip state of this node.
+     * The status of this node is its operation mode, the status of other nodes is derived from the gossip state.
+     * @return
+     */
+    @Get("/endpoints")
+    public List<ElassandraEndpointStatus> getEndpoints() {
+        final Set<String> live = new HashSet<>(storageServiceMBean.getLiveNodes());
+        final Set<String> unreachable = new HashSet<>(storageServiceMBean.getUnreachableNodes());
+        final Set<String> joining = new HashSet<>(storageServiceMBean.getJoiningNodes());
+        final Set<String> leaving = new HashSet<>(storageServiceMBean.getLeavingNodes());
+        final Set<String> moving = new HashSet<>(storageServiceMBean.getMovingNodes());
+        final Map<String, String> loads = storageServiceMBean.getLoadMap();
+        final Map<String, Float> ownerships = new HashMap<>();
+        for (Map.Entry<InetAddress, Float> entry : storageServiceMBean.getOwnership().entrySet()) {
+            ownerships.put(entry.getKey().getHostAddress(), entry.getValue());
+        }
+        final String localHostId = storageServiceMBean.getLocalHostId();
+
+        final List<ElassandraEndpointStatus> endpoints = new ArrayList<>();
+        for (Map.Entry<String, String> entry : storageServiceMBean.getEndpointToHostId().entrySet()) {
+            final String endpoint = entry.getKey();
+            final ElassandraEndpointStatus endpointStatus = new ElassandraEndpointStatus()
+                    .setEndpoint(endpoint)
+                    .setHostId(entry.getValue())
+                    .setLoad(loads.get(endpoint))
+                    .setOwnership(ownerships.get(endpoint));
+            try {
+                endpointStatus.setDatacenter(endpointSnitchInfoMBean.getDatacenter(endpoint));
+                endpointStatus.setRack(endpointSnitchInfoMBean.getRack(endpoint));
+            } catch (UnknownHostException e) {
+                logger.warn("unknown endpoint={}", endpoint);
+            }
+
+            if (entry.getValue().equals(localHostId)) {
+                endpointStatus.setStatus(getStatus());
+            } else if (unreachable.contains(endpoint)) {
+                endpointStatus.setStatus(ElassandraNodeStatus.DOWN);
+            } else if (leaving.contains(endpoint)) {
+                endpointStatus.setStatus(ElassandraNodeStatus.LEAVING);
+            } else if (moving.contains(endpoint)) {
+                endpointStatus.setStatus(ElassandraNodeStatus.MOVING);
+            } else if (joining.contains(endpoint)) {
+                endpointStatus.setStatus(ElassandraNodeStatus.JOINING);
+            } else if (live.contains(endpoint)) {
+                endpointStatus.setStatus(ElassandraNodeStatus.NORMAL);
+            }
+            endpoints.add(endpointStatus);
+        }
+        return endpoints;
+    }
 }
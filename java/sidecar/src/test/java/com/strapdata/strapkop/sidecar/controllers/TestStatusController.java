@@ -0,0 +1,94 @@
+package com.strapdata.strapkop.sidecar.controllers;
+
+import com.google.common.collect.ImmutableMap;
+import com.strapdata.model.sidecar.ElassandraEndpointStatus;
+import com.strapdata.model.sidecar.ElassandraNodeStatus;
+import com.strapdata.strapkop.sidecar.cassandra.CassandraModule;
+import com.strapdata.strapkop.sidecar.cassandra.EndpointSnitchInfoMBean;
+import com.strapdata.strapkop.sidecar.cassandra.GaugeMBean;
+import com.strapdata.strapkop.sidecar.cassandra.HintedHandOffManagerMBean;
+import jmx.org.apache.cassandra.service.StorageServiceMBean;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class TestStatusController {
+
+    private final StorageServiceMBean storageServiceMBean = mock(StorageServiceMBean.class);
+    private final HintedHandOffManagerMBean hintedHandOffManagerMBean = mock(HintedHandOffManagerMBean.class);
+    private final EndpointSnitchInfoMBean endpointSnitchInfoMBean = mock(EndpointSnitchInfoMBean.class);
+
+    private StatusController statusController() {
+        final CassandraModule cassandraModule = mock(CassandraModule.class);
+        when(cassandraModule.storageServiceMBeanProvider()).thenReturn(storageServiceMBean);
+        when(cassandraModule.hintedHandOffManagerMBeanProvider()).thenReturn(hintedHandOffManagerMBean);
+        when(cassandraModule.endpointSnitchInfoMBeanProvider()).thenReturn(endpointSnitchInfoMBean);
+        when(cassandraModule.pendingCompactionsMBeanProvider()).thenReturn(mock(GaugeMBean.class));
+        return new StatusController(cassandraModule);
+    }
+
+    @Test
+    public void testCountLiveEndpointsPendingHints() {
+        when(storageServiceMBean.getLiveNodes()).thenReturn(Arrays.asList("10.0.0.1", "10.0.0.2"));
+        when(storageServiceMBean.getHostIdToEndpoint()).thenReturn(ImmutableMap.of(
+                "host-1", "10.0.0.1", "host-2", "10.0.0.2", "host-3", "10.0.0.3"));
+        // hints to a down endpoint are not counted, endpoints listed by host id or by address
+        when(hintedHandOffManagerMBean.listEndpointsPendingHints()).thenReturn(Arrays.asList("host-1", "host-3", "10.0.0.2"));
+        assertEquals(2, statusController().countLiveEndpointsPendingHints());
+    }
+
+    @Test
+    public void testGetEndpoints() throws UnknownHostException {
+        when(storageServiceMBean.getLocalHostId()).thenReturn("host-1");
+        when(storageServiceMBean.getOperationMode()).thenReturn("DRAINING");
+        when(storageServiceMBean.getEndpointToHostId()).thenReturn(ImmutableMap.<String, String>builder()
+                .put("10.0.0.1", "host-1")
+                .put("10.0.0.2", "host-2")
+                .put("10.0.0.3", "host-3")
+                .put("10.0.0.4", "host-4")
+                .put("10.0.0.5", "host-5")
+                .put("10.0.0.6", "host-6")
+                .build());
+        when(storageServiceMBean.getLiveNodes()).thenReturn(Arrays.asList("10.0.0.1", "10.0.0.3", "10.0.0.4", "10.0.0.5"));
+        when(storageServiceMBean.getUnreachableNodes()).thenReturn(Arrays.asList("10.0.0.2"));
+        when(storageServiceMBean.getLeavingNodes()).thenReturn(Arrays.asList("10.0.0.1", "10.0.0.2", "10.0.0.3"));
+        when(storageServiceMBean.getJoiningNodes()).thenReturn(Arrays.asList("10.0.0.4"));
+        when(storageServiceMBean.getMovingNodes()).thenReturn(Arrays.asList());
+        when(storageServiceMBean.getLoadMap()).thenReturn(ImmutableMap.of("10.0.0.5", "1.2 GB"));
+        when(storageServiceMBean.getOwnership()).thenReturn(ImmutableMap.of(InetAddress.getByName("10.0.0.5"), 0.5f));
+        when(endpointSnitchInfoMBean.getDatacenter(anyString())).thenReturn("dc1");
+        when(endpointSnitchInfoMBean.getRack(anyString())).thenReturn("a");
+        when(endpointSnitchInfoMBean.getRack("10.0.0.6")).thenThrow(new UnknownHostException("10.0.0.6"));
+
+        final Map<String, ElassandraEndpointStatus> endpoints = statusController().getEndpoints().stream()
+                .collect(Collectors.toMap(ElassandraEndpointStatus::getEndpoint, Function.identity()));
+        assertEquals(6, endpoints.size());
+        // the local node reports its own operation mode
+        assertEquals(ElassandraNodeStatus.DRAINING, endpoints.get("10.0.0.1").getStatus());
+        // unreachable before leaving
+        assertEquals(ElassandraNodeStatus.DOWN, endpoints.get("10.0.0.2").getStatus());
+        assertEquals(ElassandraNodeStatus.LEAVING, endpoints.get("10.0.0.3").getStatus());
+        assertEquals(ElassandraNodeStatus.JOINING, endpoints.get("10.0.0.4").getStatus());
+        assertEquals(ElassandraNodeStatus.NORMAL, endpoints.get("10.0.0.5").getStatus());
+        // neither live nor unreachable
+        assertEquals(ElassandraNodeStatus.UNKNOWN, endpoints.get("10.0.0.6").getStatus());
+
+        assertEquals("host-5", endpoints.get("10.0.0.5").getHostId());
+        assertEquals("dc1", endpoints.get("10.0.0.5").getDatacenter());
+        assertEquals("a", endpoints.get("10.0.0.5").getRack());
+        assertEquals("1.2 GB", endpoints.get("10.0.0.5").getLoad());
+        assertEquals(Float.valueOf(0.5f), endpoints.get("10.0.0.5").getOwnership());
+        assertNull(endpoints.get("10.0.0.6").getRack());
+    }
+}